@@ -17,6 +17,7 @@ public class Settings {
     public static final String WIFI_ONLY_KEY = "wifi_only";
     public static final String KEEP_MAX_ITEMS_KEY = "keep_max_items";
     public static final String MAX_ITEMS_FOR_CHANNEL_KEY = "max_items_for_channel";
+    public static final String MAX_ITEM_AGE_DAYS_KEY = "max_item_age_days";
     public static final String AD_CLICK_TIME = "ad_click_time";
     private static Context context;
 
@@ -53,6 +54,7 @@ public class Settings {
 
         editor.putString(MAX_ITEMS_FOR_CHANNEL_KEY, "100");
         editor.putString(KEEP_MAX_ITEMS_KEY, "20");
+        editor.putString(MAX_ITEM_AGE_DAYS_KEY, "0");
         editor.putBoolean(WIFI_ONLY_KEY, false);
         editor.putLong(AD_CLICK_TIME, -25);
 
@@ -125,6 +127,14 @@ public class Settings {
         return 2000;
     }
 
+    /**
+     * @return days after which the items are deleted, 0 to keep them
+     */
+    public static int getMaxItemAgeDays() {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, 0);
+        return Integer.parseInt(prefs.getString(MAX_ITEM_AGE_DAYS_KEY, "0"));
+    }
+
     public static boolean getWifiOnly() {
         SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, 0);
         return prefs.getBoolean(WIFI_ONLY_KEY, false);
@@ -255,7 +255,6 @@ public class ChannelListActivity extends BaseListActivity {
             protected void onPostExecute(Boolean success) {
                 if (running && success) {
                     listView.setChannels(channels);
-                    refreshUnreadCounts();
                 }
 
                 loadingData = false;
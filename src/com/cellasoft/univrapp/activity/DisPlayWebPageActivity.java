@@ -21,6 +21,7 @@ import com.github.droidfu.concurrent.BetterAsyncTaskCallable;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
+import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.List;
@@ -139,8 +140,16 @@ public class DisPlayWebPageActivity extends Activity {
                     currentItem = Item.findItemById(currentItem.id,
                             ContentManager.FULL_ITEM_LOADER);
 
-                    String html = StreamUtils.readFromUrl(page_url);
-                    return modifyHtml(html);
+                    // parsed while it is downloaded and decoded
+                    Document page;
+                    InputStream is = StreamUtils.openUrl(page_url);
+                    try {
+                        page = Jsoup.parse(is, StreamUtils.DEFAULT_ENCODING,
+                                page_url);
+                    } finally {
+                        StreamUtils.closeQuietly(is);
+                    }
+                    return modifyHtml(page);
                 } else
                     throw new UnivrReaderException(getResources().getString(
                             R.string.univrapp_connection_exception));
@@ -156,18 +165,18 @@ public class DisPlayWebPageActivity extends Activity {
         finish();
     }
 
-    private String modifyHtml(String html) {
+    private String modifyHtml(Document page) {
         DateFormat dateFormat = new SimpleDateFormat(
                 "dd MMMM yyyy 'alle' HH:mm", java.util.Locale.getDefault());
         String article = FileUtils.getFileFromAssets(getApplicationContext(),
                 "article.html");
 
-        article = article.replace("{content}", Html.parserPage(html))
+        article = article.replace("{content}", Html.parserPage(page))
                 .replace("{title_url}", currentItem.link)
                 .replace("{title}", currentItem.title)
                 .replace("{date}", dateFormat.format(currentItem.pubDate));
 
-        List<String> files = Html.getAttachment(html);
+        List<String> files = Html.getAttachment(page);
         if (!files.isEmpty()) {
             Document doc = Jsoup.parse(article);
             doc.select("div#attachment").removeAttr("style");
@@ -15,12 +15,13 @@ import com.actionbarsherlock.view.Menu;
 import com.actionbarsherlock.view.MenuInflater;
 import com.cellasoft.univrapp.*;
 import com.cellasoft.univrapp.adapter.ItemAdapter.OnItemRequestListener;
-import com.cellasoft.univrapp.criteria.LatestItems;
 import com.cellasoft.univrapp.exception.UnivrReaderException;
 import com.cellasoft.univrapp.manager.ContentManager;
+import com.cellasoft.univrapp.manager.ItemWriter.OnItemsSavedListener;
 import com.cellasoft.univrapp.manager.SynchronizationManager;
 import com.cellasoft.univrapp.model.Channel;
 import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.ItemPage;
 import com.cellasoft.univrapp.model.Lecturer;
 import com.cellasoft.univrapp.utils.ActiveList;
 import com.cellasoft.univrapp.utils.AsyncTask;
@@ -81,10 +82,12 @@ public class ItemListActivity extends BaseListActivity {
     private ItemListView listView;
     private ProgressBar progressBar;
     private boolean loading = false;
+    // position of the next page, null when the last page has been shown
+    private String nextPageToken;
     private OnItemRequestListener onItemRequestListener = new OnItemRequestListener() {
         @Override
         public void onRequest(Item lastItem) {
-            loadMoreItems(lastItem);
+            loadMoreItems();
         }
     };
 
@@ -271,22 +274,15 @@ public class ItemListActivity extends BaseListActivity {
         refresh = true;
         final int maxItemsForChannel = Settings.getMaxItemsForChannel();
 
-        BetterAsyncTask<Void, Void, List<Item>> task = new BetterAsyncTask<Void, Void, List<Item>>(
+        BetterAsyncTask<Void, Void, Integer> task = new BetterAsyncTask<Void, Void, Integer>(
                 this) {
 
             @Override
-            protected void after(Context context, final List<Item> newItems) {
+            protected void after(Context context, final Integer newItems) {
                 if (running) {
                     String size = "0";
-                    if (newItems != null && newItems.size() > 0) {
-                        new Runnable() {
-                            @Override
-                            public void run() {
-                                listView.addItems(newItems);
-                            }
-                        }.run();
-
-                        size = String.valueOf(newItems.size());
+                    if (newItems != null && newItems > 0) {
+                        size = String.valueOf(newItems);
                     }
                     listView.onRefreshComplete();
 
@@ -311,13 +307,27 @@ public class ItemListActivity extends BaseListActivity {
                 refresh = false;
             }
         };
-        task.setCallable(new BetterAsyncTaskCallable<Void, Void, List<Item>>() {
+        task.setCallable(new BetterAsyncTaskCallable<Void, Void, Integer>() {
 
             @Override
-            public List<Item> call(BetterAsyncTask<Void, Void, List<Item>> arg0)
+            public Integer call(BetterAsyncTask<Void, Void, Integer> arg0)
                     throws Exception {
                 if (ConnectivityReceiver.hasGoodEnoughNetworkConnection()) {
-                    return channel.update(maxItemsForChannel);
+                    // the new items are shown as they are written
+                    return channel.update(maxItemsForChannel,
+                            new OnItemsSavedListener() {
+                                @Override
+                                public void onItemsSaved(final List<Item> items) {
+                                    runOnUiThread(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            if (running) {
+                                                listView.addItems(items);
+                                            }
+                                        }
+                                    });
+                                }
+                            });
                 } else
                     throw new UnivrReaderException(getResources().getString(
                             R.string.univrapp_connection_exception));
@@ -329,7 +339,7 @@ public class ItemListActivity extends BaseListActivity {
 
     @Override
     protected void loadData() {
-        BetterAsyncTask<Void, Void, ActiveList<Item>> task = new BetterAsyncTask<Void, Void, ActiveList<Item>>(
+        BetterAsyncTask<Void, Void, ItemPage> task = new BetterAsyncTask<Void, Void, ItemPage>(
                 this) {
 
             @Override
@@ -338,13 +348,17 @@ public class ItemListActivity extends BaseListActivity {
             }
 
             @Override
-            protected void after(Context context, final ActiveList<Item> items) {
+            protected void after(Context context, final ItemPage page) {
                 if (running) {
+                    ActiveList<Item> items = new ActiveList<Item>();
+                    items.addAll(page.items);
+                    nextPageToken = page.nextToken;
+
                     listView.setItemRequestListener(onItemRequestListener);
                     listView.setItems(items);
                     listView.startLayoutAnimation();
 
-                    if (items.size() == Config.MAX_ITEMS)
+                    if (page.hasNext())
                         listView.addFooterView();
                     else
                         listView.removeFooterView();
@@ -362,40 +376,36 @@ public class ItemListActivity extends BaseListActivity {
                 }
             }
         };
-        task.setCallable(new BetterAsyncTaskCallable<Void, Void, ActiveList<Item>>() {
+        task.setCallable(new BetterAsyncTaskCallable<Void, Void, ItemPage>() {
             @Override
-            public ActiveList<Item> call(
-                    BetterAsyncTask<Void, Void, ActiveList<Item>> task)
+            public ItemPage call(BetterAsyncTask<Void, Void, ItemPage> task)
                     throws Exception {
-
-                List<Item> items = ContentManager.loadItems(new LatestItems(
-                                channel.id), ContentManager.FULL_ITEM_LOADER,
+                return ContentManager.loadItemPage(channel.id, null,
+                        Config.MAX_ITEMS, ContentManager.LIST_ITEM_LOADER,
                         ContentManager.LIGHTWEIGHT_CHANNEL_LOADER);
-
-                ActiveList<Item> result = new ActiveList<Item>();
-                result.addAll(items);
-                return result;
             }
         });
         task.disableDialog();
         UIUtils.execute(task, (Void[]) null);
     }
 
-    protected void loadMoreItems(final Item lastItem) {
-        if (loading) {
+    protected void loadMoreItems() {
+        if (loading || nextPageToken == null) {
             return;
         }
 
         loading = true;
+        final String token = nextPageToken;
 
-        BetterAsyncTask<Void, Void, List<Item>> task = new BetterAsyncTask<Void, Void, List<Item>>(
+        BetterAsyncTask<Void, Void, ItemPage> task = new BetterAsyncTask<Void, Void, ItemPage>(
                 this) {
             @Override
-            protected void after(Context context, final List<Item> items) {
+            protected void after(Context context, final ItemPage page) {
                 if (running) {
-                    listView.addItems(items);
+                    listView.addItems(page.items);
+                    nextPageToken = page.nextToken;
 
-                    if (items.size() < Config.MAX_ITEMS
+                    if (!page.hasNext()
                             || listView.getCount() >= Settings
                             .getMaxItemsForChannel()) {
 
@@ -411,13 +421,12 @@ public class ItemListActivity extends BaseListActivity {
                 loading = false;
             }
         };
-        task.setCallable(new BetterAsyncTaskCallable<Void, Void, List<Item>>() {
+        task.setCallable(new BetterAsyncTaskCallable<Void, Void, ItemPage>() {
             @Override
-            public List<Item> call(BetterAsyncTask<Void, Void, List<Item>> task)
+            public ItemPage call(BetterAsyncTask<Void, Void, ItemPage> task)
                     throws Exception {
-                return ContentManager.loadItems(new LatestItems(channel.id,
-                                lastItem, LatestItems.OLDER, Config.MAX_ITEMS),
-                        ContentManager.FULL_ITEM_LOADER,
+                return ContentManager.loadItemPage(channel.id, token,
+                        Config.MAX_ITEMS, ContentManager.LIST_ITEM_LOADER,
                         ContentManager.LIGHTWEIGHT_CHANNEL_LOADER);
             }
         });
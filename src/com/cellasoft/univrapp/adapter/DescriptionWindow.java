@@ -0,0 +1,114 @@
+package com.cellasoft.univrapp.adapter;
+
+import android.util.SparseArray;
+import com.cellasoft.univrapp.manager.ContentManager;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.utils.AsyncTask;
+import com.cellasoft.univrapp.utils.ItemSummary;
+import com.cellasoft.univrapp.utils.Lists;
+
+import java.util.List;
+
+/**
+ * Formatted descriptions of the rows around the last one shown by an
+ * {@link ItemAdapter}. The items of the list are loaded without the
+ * description: the descriptions of the rows on screen, plus a read-ahead on
+ * both sides, are loaded in background and dropped again when the rows
+ * scroll away, so the heap used does not depend on the length of the
+ * announcements nor on the number of rows.
+ */
+class DescriptionWindow {
+    private static final int READ_AHEAD = 8;
+    // rows kept on each side of the last row shown
+    private static final int KEEP = 2 * READ_AHEAD;
+
+    private final ItemAdapter adapter;
+    private SparseArray<CharSequence> descriptions = new SparseArray<CharSequence>();
+    private int center;
+    private boolean loading;
+
+    DescriptionWindow(ItemAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    static CharSequence format(int itemId, String description) {
+        return ItemSummary.get(itemId, ItemSummary.render(description));
+    }
+
+    /**
+     * Must be called from the UI thread.
+     *
+     * @return the description of the item, null while it is being loaded
+     */
+    CharSequence get(int position, Item item) {
+        center = position;
+        CharSequence description = descriptions.get(item.id);
+        if (description == null && !loading) {
+            load();
+        }
+        return description;
+    }
+
+    void clear() {
+        descriptions.clear();
+    }
+
+    private void load() {
+        List<Item> items = adapter.getItems();
+        int from = Math.max(0, center - READ_AHEAD);
+        int to = Math.min(items.size(), center + READ_AHEAD + 1);
+        final List<Integer> ids = Lists.newArrayList();
+        for (int i = from; i < to; i++) {
+            int id = items.get(i).id;
+            if (descriptions.get(id) == null) {
+                ids.add(id);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        loading = true;
+        new AsyncTask<Void, Void, SparseArray<CharSequence>>() {
+            @Override
+            protected SparseArray<CharSequence> doInBackground(Void... params) {
+                SparseArray<String> loaded = ContentManager
+                        .loadItemDescriptions(ids);
+                SparseArray<CharSequence> formatted = new SparseArray<CharSequence>();
+                for (Integer id : ids) {
+                    // missing rows get an empty text so they are not loaded again
+                    formatted.put(id, format(id, loaded.get(id)));
+                }
+                return formatted;
+            }
+
+            @Override
+            protected void onPostExecute(SparseArray<CharSequence> result) {
+                loading = false;
+                evict();
+                for (int i = 0; i < result.size(); i++) {
+                    descriptions.put(result.keyAt(i), result.valueAt(i));
+                }
+                adapter.refresh();
+            }
+        }.execute((Void[]) null);
+    }
+
+    /**
+     * Drops the descriptions of the rows far from the last one shown.
+     */
+    private void evict() {
+        List<Item> items = adapter.getItems();
+        int from = Math.max(0, center - KEEP);
+        int to = Math.min(items.size(), center + KEEP + 1);
+        SparseArray<CharSequence> kept = new SparseArray<CharSequence>();
+        for (int i = from; i < to; i++) {
+            int id = items.get(i).id;
+            CharSequence description = descriptions.get(id);
+            if (description != null) {
+                kept.put(id, description);
+            }
+        }
+        descriptions = kept;
+    }
+}
@@ -2,7 +2,6 @@ package com.cellasoft.univrapp.adapter;
 
 import android.content.Context;
 import android.graphics.Typeface;
-import android.text.Html;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,6 +10,7 @@ import com.cellasoft.univrapp.R;
 import com.cellasoft.univrapp.model.Item;
 import com.cellasoft.univrapp.utils.ActiveList;
 import com.cellasoft.univrapp.utils.DateUtils;
+import com.cellasoft.univrapp.utils.ItemSummary;
 
 import java.util.List;
 
@@ -21,6 +21,8 @@ public class ItemAdapter extends BaseListAdapter<Item> {
 
     private int lastRequestPosition = -1;
     private OnItemRequestListener itemRequestListener;
+    private final DescriptionWindow descriptionWindow = new DescriptionWindow(
+            this);
 
     public ItemAdapter(Context context, int resources) {
         super(context, resources);
@@ -34,6 +36,7 @@ public class ItemAdapter extends BaseListAdapter<Item> {
     @Override
     public synchronized void setItems(List<Item> items) {
         lastRequestPosition = -1;
+        descriptionWindow.clear();
         if (this.items != null) {
             ((ActiveList<Item>) this.items).removeListener(activeListListener);
         }
@@ -42,6 +45,12 @@ public class ItemAdapter extends BaseListAdapter<Item> {
         this.notifyDataSetInvalidated();
     }
 
+    @Override
+    public synchronized void clear() {
+        descriptionWindow.clear();
+        super.clear();
+    }
+
     @Override
     public synchronized void addItems(List<Item> items) {
         if (this.items == null) {
@@ -72,8 +81,14 @@ public class ItemAdapter extends BaseListAdapter<Item> {
             Holder holder = (Holder) viewHolder;
             holder.title.setText(item.title);
 
-            String description = item.description.replace("Pubblicato da:","<b>Pubblicato da:</b>");
-            holder.description.setText(Html.fromHtml(description));
+            CharSequence description;
+            if (item.summary != null) {
+                description = ItemSummary.get(item.id, item.summary);
+            } else {
+                // saved before the summary existed
+                description = descriptionWindow.get(position, item);
+            }
+            holder.description.setText(description);
             holder.date.setText(DateUtils.formatDate(item.pubDate));
         }
     }
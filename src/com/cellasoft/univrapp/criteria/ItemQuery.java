@@ -0,0 +1,271 @@
+package com.cellasoft.univrapp.criteria;
+
+import android.net.Uri;
+import com.cellasoft.univrapp.model.Channel.Channels;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.provider.DatabaseHelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Item criteria composed with a {@link Builder}. The selection depends only
+ * on the shape of the query, which filters are set and how many channels,
+ * so it is built once per shape and cached; the values go in the arguments.
+ * <p/>
+ * All the channel filters become one CHANNEL_ID IN (...) term, which
+ * SQLite reads with the channel index, and the unread filter is the
+ * predicate of the partial index of the unread items where SQLite supports
+ * partial indexes.
+ */
+public final class ItemQuery implements ItemCriteria {
+    /**
+     * Unread items, as the predicate of the partial index: the queries must
+     * use the same expression for SQLite to choose the index.
+     */
+    public static final String UNREAD_SELECTION = Items.READ + " IN ("
+            + Item.UNREAD + ", " + Item.KEPT_UNREAD + ")";
+
+    public static final int NO_LIMIT = 0;
+
+    // position of the items compared to the page token
+    private static final byte NONE = 0;
+    private static final byte OLDER = 1;
+    private static final byte NEWER = 2;
+
+    private static final Map<String, String> selections = new ConcurrentHashMap<String, String>();
+
+    private final int channelCount;
+    private final boolean unreadOnly;
+    private final boolean starredOnly;
+    private final boolean excludeMuted;
+    private final boolean byTime;
+    private final boolean hasFrom;
+    private final boolean hasTo;
+    private final byte comparison;
+    private final String[] selectionArgs;
+    private final String orderBy;
+    private final int limit;
+
+    private ItemQuery(Builder builder) {
+        int[] channelIds = builder.channelIds;
+        channelCount = channelIds == null ? 0 : channelIds.length;
+        unreadOnly = builder.unreadOnly;
+        starredOnly = builder.starredOnly;
+        excludeMuted = builder.excludeMuted;
+        byTime = builder.byTime;
+        hasFrom = builder.from != null;
+        hasTo = builder.to != null;
+        comparison = builder.token == null ? NONE
+                : builder.comparison;
+        orderBy = builder.orderBy;
+        limit = builder.limit;
+
+        String[] tokenArgs = comparison == NONE ? null
+                : builder.token.getSelectionArgs();
+        selectionArgs = new String[channelCount + (hasFrom ? 1 : 0)
+                + (hasTo ? 1 : 0) + (tokenArgs == null ? 0 : tokenArgs.length)];
+        int i = 0;
+        for (int c = 0; c < channelCount; c++) {
+            selectionArgs[i++] = String.valueOf(channelIds[c]);
+        }
+        if (hasFrom) {
+            selectionArgs[i++] = String.valueOf(builder.from);
+        }
+        if (hasTo) {
+            selectionArgs[i++] = String.valueOf(builder.to);
+        }
+        if (tokenArgs != null) {
+            System.arraycopy(tokenArgs, 0, selectionArgs, i, tokenArgs.length);
+        }
+    }
+
+    @Override
+    public Uri getContentUri() {
+        return limit == NO_LIMIT ? Items.CONTENT_URI : Items.limit(limit);
+    }
+
+    @Override
+    public String getSelection() {
+        String shape = shape();
+        String selection = selections.get(shape);
+        if (selection == null) {
+            selection = compile();
+            selections.put(shape, selection);
+        }
+        return selection.length() == 0 ? null : selection;
+    }
+
+    @Override
+    public String[] getSelectionArgs() {
+        return selectionArgs;
+    }
+
+    @Override
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    private String shape() {
+        return channelCount + (unreadOnly ? "u" : "") + (starredOnly ? "s" : "")
+                + (excludeMuted ? "m" : "") + (byTime ? "b" : "")
+                + (hasFrom ? "f" : "")
+                + (hasTo ? "t" : "") + comparison;
+    }
+
+    /**
+     * The order of the terms is the order of the arguments.
+     */
+    private String compile() {
+        StringBuilder sb = new StringBuilder();
+        if (byTime) {
+            // the unary + keeps SQLite from reading the channels one at a
+            // time with the channel index
+            sb.append("+");
+        }
+        if (starredOnly || excludeMuted) {
+            StringBuilder channels = new StringBuilder();
+            if (channelCount > 0) {
+                appendIn(channels.append(Channels.ID), channelCount);
+            }
+            if (starredOnly) {
+                and(channels).append(Channels.STARRED).append("=1");
+            }
+            if (excludeMuted) {
+                and(channels).append("(").append(Channels.MUTE)
+                        .append(" IS NULL OR ").append(Channels.MUTE)
+                        .append("=0)");
+            }
+            sb.append(Items.CHANNEL_ID).append(" IN (SELECT ")
+                    .append(Channels.ID).append(" FROM ")
+                    .append(DatabaseHelper.CHANNELS_TABLE_NAME)
+                    .append(" WHERE ").append(channels).append(")");
+        } else if (channelCount == 1) {
+            sb.append(Items.CHANNEL_ID).append("=?");
+        } else if (channelCount > 1) {
+            appendIn(sb.append(Items.CHANNEL_ID), channelCount);
+        } else {
+            sb.setLength(0);
+        }
+        if (unreadOnly) {
+            and(sb).append(UNREAD_SELECTION);
+        }
+        if (hasFrom) {
+            and(sb).append(Items.PUB_DATE).append(">=?");
+        }
+        if (hasTo) {
+            and(sb).append(Items.PUB_DATE).append("<?");
+        }
+        if (comparison == OLDER) {
+            and(sb).append(PageToken.OLDER_SELECTION);
+        } else if (comparison == NEWER) {
+            and(sb).append(PageToken.NEWER_SELECTION);
+        }
+        return sb.toString();
+    }
+
+    private static StringBuilder and(StringBuilder sb) {
+        return sb.length() > 0 ? sb.append(" AND ") : sb;
+    }
+
+    private static void appendIn(StringBuilder sb, int count) {
+        sb.append(" IN (");
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        sb.append(")");
+    }
+
+    public static class Builder {
+        private int[] channelIds;
+        private boolean unreadOnly;
+        private boolean starredOnly;
+        private boolean excludeMuted;
+        private boolean byTime;
+        private Long from;
+        private Long to;
+        private PageToken token;
+        private byte comparison = NONE;
+        private String orderBy = PageToken.ORDER_BY;
+        private int limit = NO_LIMIT;
+
+        public Builder channels(int... channelIds) {
+            this.channelIds = channelIds.length == 0 ? null : channelIds;
+            return this;
+        }
+
+        public Builder unreadOnly() {
+            this.unreadOnly = true;
+            return this;
+        }
+
+        public Builder starredChannels() {
+            this.starredOnly = true;
+            return this;
+        }
+
+        public Builder excludeMuted() {
+            this.excludeMuted = true;
+            return this;
+        }
+
+        /**
+         * Reads the items across the channels in time order, with the
+         * timeline index, stopping at the limit: for the queries over many
+         * channels in {@link PageToken#ORDER_BY}.
+         */
+        public Builder byTime() {
+            this.byTime = true;
+            return this;
+        }
+
+        /**
+         * Items published in [from, to), in milliseconds; either bound can
+         * be null.
+         */
+        public Builder publishedBetween(Long from, Long to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /**
+         * Items after the token in {@link PageToken#ORDER_BY}.
+         */
+        public Builder olderThan(PageToken token) {
+            this.token = token;
+            this.comparison = OLDER;
+            return this;
+        }
+
+        /**
+         * Items before the token in {@link PageToken#ORDER_BY}, read in
+         * {@link PageToken#REVERSE_ORDER_BY} to get the nearest first.
+         */
+        public Builder newerThan(PageToken token) {
+            this.token = token;
+            this.comparison = NEWER;
+            this.orderBy = PageToken.REVERSE_ORDER_BY;
+            return this;
+        }
+
+        /**
+         * Any order; the default is {@link PageToken#ORDER_BY}, the one the
+         * index and the tokens follow.
+         */
+        public Builder orderBy(String orderBy) {
+            this.orderBy = orderBy;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public ItemQuery build() {
+            return new ItemQuery(this);
+        }
+    }
+}
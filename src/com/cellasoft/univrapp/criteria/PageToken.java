@@ -0,0 +1,92 @@
+package com.cellasoft.univrapp.criteria;
+
+import android.util.Base64;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.Item.Items;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Position of an item in the "UPDATE_TIME DESC, PUB_DATE DESC, ID ASC" order
+ * of the item lists. A page continues from the token of its last item, so
+ * loading the next page does not depend on how deep the list already is.
+ * <p/>
+ * SQLite on the supported devices has no row-value comparison, so the
+ * predicates are written with a leading UPDATE_TIME bound that the channel
+ * index turns into a range scan.
+ */
+public final class PageToken {
+
+    public static final String ORDER_BY = Items.UPDATE_TIME + " DESC, "
+            + Items.PUB_DATE + " DESC, " + Items.ID + " ASC";
+
+    public static final String REVERSE_ORDER_BY = Items.UPDATE_TIME + " ASC, "
+            + Items.PUB_DATE + " ASC, " + Items.ID + " DESC";
+
+    /**
+     * Items that come after the token in {@link #ORDER_BY}.
+     */
+    public static final String OLDER_SELECTION = "(" + Items.UPDATE_TIME
+            + "<=? AND (" + Items.UPDATE_TIME + "<? OR " + Items.PUB_DATE
+            + "<? OR (" + Items.PUB_DATE + "=? AND " + Items.ID + ">?)))";
+
+    /**
+     * Items that come before the token in {@link #ORDER_BY}.
+     */
+    public static final String NEWER_SELECTION = "(" + Items.UPDATE_TIME
+            + ">=? AND (" + Items.UPDATE_TIME + ">? OR " + Items.PUB_DATE
+            + ">? OR (" + Items.PUB_DATE + "=? AND " + Items.ID + "<?)))";
+
+    private static final int BASE64_FLAGS = Base64.URL_SAFE | Base64.NO_WRAP
+            | Base64.NO_PADDING;
+
+    public final long updateTime;
+    public final long pubDate;
+    public final int id;
+
+    public PageToken(long updateTime, long pubDate, int id) {
+        this.updateTime = updateTime;
+        this.pubDate = pubDate;
+        this.id = id;
+    }
+
+    public static PageToken of(Item item) {
+        return new PageToken(item.updateTime, item.pubDate.getTime(), item.id);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not created by
+     *                                  {@link #encode()}
+     */
+    public static PageToken decode(String token) {
+        try {
+            String[] values = new String(Base64.decode(token, BASE64_FLAGS),
+                    "US-ASCII").split(":");
+            return new PageToken(Long.parseLong(values[0]),
+                    Long.parseLong(values[1]), Integer.parseInt(values[2]));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid page token " + token);
+        }
+    }
+
+    public String encode() {
+        String value = updateTime + ":" + pubDate + ":" + id;
+        try {
+            return Base64.encodeToString(value.getBytes("US-ASCII"),
+                    BASE64_FLAGS);
+        } catch (UnsupportedEncodingException e) {
+            // every platform supports US-ASCII
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the arguments of {@link #OLDER_SELECTION} and
+     * {@link #NEWER_SELECTION}
+     */
+    public String[] getSelectionArgs() {
+        String time = String.valueOf(updateTime);
+        String date = String.valueOf(pubDate);
+        return new String[]{time, time, date, date, String.valueOf(id)};
+    }
+}
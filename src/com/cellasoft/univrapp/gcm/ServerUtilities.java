@@ -4,14 +4,13 @@ import android.content.Context;
 import com.cellasoft.univrapp.Config;
 import com.cellasoft.univrapp.R;
 import com.cellasoft.univrapp.Settings;
-import com.cellasoft.univrapp.utils.StreamUtils;
+import com.cellasoft.univrapp.utils.HttpStack;
 import com.google.android.gcm.GCMRegistrar;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -107,12 +106,10 @@ public final class ServerUtilities {
      */
     private static void post(String endpoint, Map<String, String> params)
             throws IOException {
-        StreamUtils.disableConnectionReuseIfNecessary();
-
-        URL url;
+        HttpPost post;
         try {
-            url = new URL(endpoint);
-        } catch (MalformedURLException e) {
+            post = new HttpPost(endpoint);
+        } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("invalid url: " + endpoint);
         }
         StringBuilder bodyBuilder = new StringBuilder();
@@ -127,35 +124,21 @@ public final class ServerUtilities {
             }
         }
         String body = bodyBuilder.toString();
-        LOGV(TAG, "Posting '" + body + "' to " + url);
-        byte[] bytes = body.getBytes();
-        HttpURLConnection conn = null;
+        LOGV(TAG, "Posting '" + body + "' to " + endpoint);
         try {
-            LOGE("URL", "> " + url);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setDoOutput(true);
-            conn.setUseCaches(false);
-            conn.setFixedLengthStreamingMode(bytes.length);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type",
-                    "application/x-www-form-urlencoded;charset=UTF-8");
+            LOGE("URL", "> " + endpoint);
+            ByteArrayEntity entity = new ByteArrayEntity(body.getBytes());
+            entity.setContentType("application/x-www-form-urlencoded;charset=UTF-8");
+            post.setEntity(entity);
             // post the request
-            OutputStream out = conn.getOutputStream();
-            out.write(bytes);
-
-            StreamUtils.closeQuietly(out);
+            HttpResponse response = HttpStack.execute(post);
             // handle the response
-            int status = conn.getResponseCode();
+            int status = response.getStatusLine().getStatusCode();
+            HttpStack.consume(response);
             if (status != 200) {
                 throw new IOException("Post failed with error code " + status);
             }
-            // String response = StreamUtils.readAllText(conn.getInputStream(),
-            // "UTF-8");
-            // LOGI(TAG, response);
         } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
             params.clear();
             params = null;
         }
@@ -0,0 +1,102 @@
+package com.cellasoft.univrapp.loader;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.Item.Items;
+
+/**
+ * Loads an item and its channel from one row of the items/channels join
+ * (see {@link Items#withChannel(android.net.Uri)}). The item columns come
+ * first, followed by the channel columns prefixed with
+ * {@link Items#CHANNEL_COLUMN_PREFIX}, so both loaders keep reading their
+ * columns by position.
+ */
+public class ChannelJoinItemLoader implements ItemLoader {
+    private final ItemLoader itemLoader;
+    private final ChannelLoader channelLoader;
+    private final String[] projection;
+
+    public ChannelJoinItemLoader(ItemLoader itemLoader,
+                                 ChannelLoader channelLoader) {
+        this.itemLoader = itemLoader;
+        this.channelLoader = channelLoader;
+
+        String[] itemProjection = itemLoader.getProjection();
+        String[] channelProjection = channelLoader.getProjection();
+        projection = new String[itemProjection.length
+                + channelProjection.length];
+        System.arraycopy(itemProjection, 0, projection, 0,
+                itemProjection.length);
+        for (int i = 0; i < channelProjection.length; i++) {
+            projection[itemProjection.length + i] = Items.CHANNEL_COLUMN_PREFIX
+                    + channelProjection[i];
+        }
+    }
+
+    @Override
+    public String[] getProjection() {
+        return projection;
+    }
+
+    @Override
+    public Item load(Cursor cursor) {
+        Item item = itemLoader.load(cursor);
+        item.channel = channelLoader.load(new OffsetCursor(cursor,
+                itemLoader.getProjection().length));
+        return item;
+    }
+
+    /**
+     * Shifts the column indexes so a {@link ChannelLoader} reads its
+     * columns starting at 0.
+     */
+    private static class OffsetCursor extends CursorWrapper {
+        private final int offset;
+
+        OffsetCursor(Cursor cursor, int offset) {
+            super(cursor);
+            this.offset = offset;
+        }
+
+        @Override
+        public String getString(int columnIndex) {
+            return super.getString(columnIndex + offset);
+        }
+
+        @Override
+        public short getShort(int columnIndex) {
+            return super.getShort(columnIndex + offset);
+        }
+
+        @Override
+        public int getInt(int columnIndex) {
+            return super.getInt(columnIndex + offset);
+        }
+
+        @Override
+        public long getLong(int columnIndex) {
+            return super.getLong(columnIndex + offset);
+        }
+
+        @Override
+        public float getFloat(int columnIndex) {
+            return super.getFloat(columnIndex + offset);
+        }
+
+        @Override
+        public double getDouble(int columnIndex) {
+            return super.getDouble(columnIndex + offset);
+        }
+
+        @Override
+        public byte[] getBlob(int columnIndex) {
+            return super.getBlob(columnIndex + offset);
+        }
+
+        @Override
+        public boolean isNull(int columnIndex) {
+            return super.isNull(columnIndex + offset);
+        }
+    }
+}
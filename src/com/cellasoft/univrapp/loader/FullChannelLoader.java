@@ -8,7 +8,7 @@ public class FullChannelLoader implements ChannelLoader {
     private final String[] projection = new String[]{Channels.ID,
             Channels.LECTURER_ID, Channels.TITLE, Channels.URL,
             Channels.DESCRIPTION, Channels.UPDATE_TIME, Channels.STARRED,
-            Channels.MUTE, Channels.IMAGE_URL};
+            Channels.MUTE, Channels.IMAGE_URL, Channels.UNREAD};
 
     @Override
     public String[] getProjection() {
@@ -27,6 +27,7 @@ public class FullChannelLoader implements ChannelLoader {
         channel.starred = (cursor.getInt(6) != 0);
         channel.mute = (cursor.getInt(7) != 0);
         channel.imageUrl = cursor.getString(8);
+        channel.unread = cursor.getInt(9);
         return channel;
     }
 
@@ -4,6 +4,7 @@ import android.database.Cursor;
 import com.cellasoft.univrapp.model.Channel;
 import com.cellasoft.univrapp.model.Item;
 import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.utils.BodyCodec;
 
 import java.sql.Timestamp;
 
@@ -23,7 +24,8 @@ public class FullItemLoader implements ItemLoader {
         Item item = new Item();
         item.id = cursor.getInt(0);
         item.title = cursor.getString(1);
-        item.description = cursor.getString(2);
+        // inflated only here, when the article is opened
+        item.description = BodyCodec.read(cursor, 2);
         item.pubDate = new Timestamp(cursor.getLong(3));
         item.updateTime = cursor.getLong(4);
         item.read = cursor.getInt(5);
@@ -6,7 +6,8 @@ import com.cellasoft.univrapp.model.Channel.Channels;
 
 public class LightweightChannelLoader implements ChannelLoader {
     private final String[] projection = new String[]{Channels.ID,
-            Channels.TITLE, Channels.URL, Channels.STARRED, Channels.MUTE};
+            Channels.TITLE, Channels.URL, Channels.STARRED, Channels.MUTE,
+            Channels.ETAG, Channels.LAST_MODIFIED};
 
     @Override
     public String[] getProjection() {
@@ -21,6 +22,8 @@ public class LightweightChannelLoader implements ChannelLoader {
         channel.url = cursor.getString(2);// cursor.getColumnIndex(Channels.URL));
         channel.starred = (cursor.getInt(3) != 0);
         channel.mute = (cursor.getInt(4) != 0);
+        channel.etag = cursor.getString(5);
+        channel.lastModified = cursor.getString(6);
         return channel;
     }
 
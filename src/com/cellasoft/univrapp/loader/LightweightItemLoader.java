@@ -21,7 +21,7 @@ public class LightweightItemLoader implements ItemLoader {
         Item item = new Item();
         item.id = cursor.getInt(0);// cursor.getColumnIndex(Items.ID));
         item.title = cursor.getString(1);// cursor.getColumnIndex(Items.TITLE));
-        item.pubDate = new Timestamp(cursor.getLong(3));// cursor.getColumnIndex(Items.PUB_DATE));
+        item.pubDate = new Timestamp(cursor.getLong(2));// cursor.getColumnIndex(Items.PUB_DATE));
         item.updateTime = cursor.getLong(3);
         item.channel = new Channel(cursor.getInt(4));
         return item;
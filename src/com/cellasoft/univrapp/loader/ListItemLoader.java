@@ -0,0 +1,38 @@
+package com.cellasoft.univrapp.loader;
+
+import android.database.Cursor;
+import com.cellasoft.univrapp.model.Channel;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.Item.Items;
+
+import java.sql.Timestamp;
+
+/**
+ * The columns shown by the item lists: the summary instead of the
+ * description. Items saved before the summary existed have a null summary,
+ * and the list loads their description only for the rows on screen.
+ */
+public class ListItemLoader implements ItemLoader {
+    private final String[] projection = new String[]{Items.ID, Items.TITLE,
+            Items.PUB_DATE, Items.UPDATE_TIME, Items.READ, Items.LINK,
+            Items.CHANNEL_ID, Items.SUMMARY,};
+
+    @Override
+    public String[] getProjection() {
+        return projection;
+    }
+
+    @Override
+    public Item load(Cursor cursor) {
+        Item item = new Item();
+        item.id = cursor.getInt(0);
+        item.title = cursor.getString(1);
+        item.pubDate = new Timestamp(cursor.getLong(2));
+        item.updateTime = cursor.getLong(3);
+        item.read = cursor.getInt(4);
+        item.link = cursor.getString(5);
+        item.channel = new Channel(cursor.getInt(6));
+        item.summary = cursor.getString(7);
+        return item;
+    }
+}
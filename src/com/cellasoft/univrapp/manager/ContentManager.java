@@ -1,16 +1,20 @@
 package com.cellasoft.univrapp.manager;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.util.Log;
 import android.util.SparseArray;
 import android.util.SparseIntArray;
 import com.cellasoft.univrapp.Application;
-import com.cellasoft.univrapp.BuildConfig;
 import com.cellasoft.univrapp.criteria.ItemCriteria;
+import com.cellasoft.univrapp.criteria.PageToken;
 import com.cellasoft.univrapp.loader.*;
 import com.cellasoft.univrapp.model.Channel;
 import com.cellasoft.univrapp.model.Channel.Channels;
@@ -18,17 +22,23 @@ import com.cellasoft.univrapp.model.Image;
 import com.cellasoft.univrapp.model.Image.Images;
 import com.cellasoft.univrapp.model.Item;
 import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.model.ItemPage;
 import com.cellasoft.univrapp.model.Lecturer;
 import com.cellasoft.univrapp.model.Lecturer.Lecturers;
+import com.cellasoft.univrapp.provider.Dao;
 import com.cellasoft.univrapp.provider.DatabaseHelper;
 import com.cellasoft.univrapp.provider.Provider;
 import com.cellasoft.univrapp.utils.ActiveList;
+import com.cellasoft.univrapp.utils.BodyCodec;
+import com.cellasoft.univrapp.utils.ItemSummary;
 import com.cellasoft.univrapp.utils.Lists;
 import com.cellasoft.univrapp.widget.ContactItemInterface;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class ContentManager {
@@ -37,12 +47,36 @@ public class ContentManager {
     public static final ChannelLoader LIGHTWEIGHT_CHANNEL_LOADER = new LightweightChannelLoader();
     public static final ItemLoader FULL_ITEM_LOADER = new FullItemLoader();
     public static final ItemLoader LIGHTWEIGHT_ITEM_LOADER = new LightweightItemLoader();
+    public static final ItemLoader LIST_ITEM_LOADER = new ListItemLoader();
     public static final LecturerLoader LIGHTWEIGHT_LECTURER_LOADER = new LightweightLecturerLoader();
     public static final LecturerLoader FULL_LECTURER_LOADER = new FullLecturerLoader();
 
     public static final int ITEM_TYPE_CHANNEL = 1;
     public static final int ITEM_TYPE_ITEM = 2;
-    private static final SparseArray<WeakReference<Channel>> channelCache = new SparseArray<WeakReference<Channel>>();
+    private static final int CHANNEL_CACHE_SIZE = 64;
+    // host parameters of one statement, SQLITE_MAX_VARIABLE_NUMBER
+    private static final int MAX_SQL_VARIABLES = 999;
+    /**
+     * Identity map of the loaded channels, shared by the UI and the
+     * synchronization threads: the items of a channel get the same instance.
+     * Kept in access order and bounded, so the least recently used channels
+     * are dropped first. Always accessed holding its lock.
+     */
+    private static final Map<Integer, Channel> channelCache = new LinkedHashMap<Integer, Channel>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Channel> eldest) {
+            return size() > CHANNEL_CACHE_SIZE;
+        }
+    };
+    private static final int QUERY_CACHE_SIZE = 32;
+    /**
+     * Results of the queries repeated every time a list is shown again.
+     */
+    private static final QueryCache queryCache = new QueryCache(
+            QUERY_CACHE_SIZE);
     private static Set<String> recentReadArticles = new HashSet<String>();
     private static ContentResolver cr;
 
@@ -58,8 +92,8 @@ public class ContentManager {
         Cursor cursor = cr.query(Channels.CONTENT_URI, loader.getProjection(),
                 Provider.WHERE_ID, new String[]{String.valueOf(id)}, null);
         if (cursor.moveToFirst()) {
-            channel = loader.load(cursor);
-            putChannelToCache(channel);
+            channel = internChannel(loader.load(cursor),
+                    loader.getProjection());
         }
         cursor.close();
 
@@ -111,30 +145,56 @@ public class ContentManager {
             channel.id = (int) ContentUris.parseId(contentUri);
         } else {
             values.put(Channels.UPDATE_TIME, channel.updateTime);
+            values.put(Channels.ETAG, channel.etag);
+            values.put(Channels.LAST_MODIFIED, channel.lastModified);
             cr.update(Channels.CONTENT_URI, values, Provider.WHERE_ID,
                     new String[]{String.valueOf(channel.id)});
         }
 
         // invalidate cache
-        Channel channelInCache = getChannelFromCache(channel.id);
-        if (channelInCache != null) {
-            channelCache.remove(channel.id);
-            putChannelToCache(channel);
+        synchronized (channelCache) {
+            if (channelCache.containsKey(channel.id)) {
+                channelCache.put(channel.id, channel);
+            }
         }
 
         return true;
     }
 
-    public static void deleteChannel(Channel channel) {
-        cr.delete(Items.CONTENT_URI, Items.CHANNEL_ID + "=?",
-                new String[]{String.valueOf(channel.id)});
-        cr.delete(Channels.CONTENT_URI, Provider.WHERE_ID,
-                new String[]{String.valueOf(channel.id)});
-        channel.id = 0;
+    /**
+     * Opens a batch on the current thread: the changes made through
+     * ContentManager until {@link #endBatch()} are notified to the observers
+     * once per uri when the batch ends. Batches can be nested.
+     * <p/>
+     * It only coalesces notifications, every change is still committed on
+     * its own.
+     */
+    public static void beginBatch() {
+        Provider.beginNotificationScope();
+    }
 
-        if (isChannelInCache(channel.id)) {
+    /**
+     * Ends the batch opened by {@link #beginBatch()}; always call it from a
+     * finally block.
+     */
+    public static void endBatch() {
+        Provider.endNotificationScope(cr);
+    }
+
+    public static void deleteChannel(Channel channel) {
+        beginBatch();
+        try {
+            cr.delete(Items.CONTENT_URI, Items.CHANNEL_ID + "=?",
+                    new String[]{String.valueOf(channel.id)});
+            cr.delete(Channels.CONTENT_URI, Provider.WHERE_ID,
+                    new String[]{String.valueOf(channel.id)});
+        } finally {
+            endBatch();
+        }
+        synchronized (channelCache) {
             channelCache.remove(channel.id);
         }
+        channel.id = 0;
     }
 
     public static int cleanChannel(Channel channel) {
@@ -142,65 +202,19 @@ public class ContentManager {
                 new String[]{String.valueOf(channel.id)});
     }
 
-    // ASC a->z 1->n
-    // DESC z->a n->1
-
-    public static void cleanUp(Channel channel, int keepMaxItems) {
-        // delete old items
-        Cursor cursor = cr.query(Items.limitAndStartAt(1, keepMaxItems - 1),
-                new String[]{Items.ID, Items.PUB_DATE, Items.UPDATE_TIME},
-                Items.CHANNEL_ID + "=?",
-                new String[]{String.valueOf(channel.id)}, Items.UPDATE_TIME
-                        + " DESC, " + Items.PUB_DATE + " DESC, " + Items.ID
-                        + " ASC");
-
-        if (cursor.moveToNext()) {
-            long id = cursor.getLong(0);
-            long lastPubDate = cursor.getLong(1);
-            long updateTime = cursor.getLong(2);
-            cursor.close();
-
-            String selection = Items.CHANNEL_ID + "=? AND ("
-                    + Items.UPDATE_TIME + "<? OR (" + Items.UPDATE_TIME
-                    + "=? AND (" + Items.PUB_DATE + "<? OR (" + Items.PUB_DATE
-                    + " =? AND " + Items.ID + ">?))))";
-
-            int deletedItems = cr.delete(
-                    Items.CONTENT_URI,
-                    selection,
-                    new String[]{String.valueOf(channel.id),
-                            String.valueOf(updateTime),
-                            String.valueOf(updateTime),
-                            String.valueOf(lastPubDate),
-                            String.valueOf(lastPubDate), String.valueOf(id)});
-
-            if (BuildConfig.DEBUG)
-                Log.d("DEBUG", "Number of deleted items: " + deletedItems);
-        } else {
-            if (BuildConfig.DEBUG)
-                Log.d("DEBUG", "No item to be deleted");
-            cursor.close();
-        }
-    }
-
     public static boolean saveItem(Item item) {
-        ContentValues values = new ContentValues();
+        ContentValues values;
         if (item.id == 0) {
             if (existItem(item))
                 return false;
 
-            values.put(Items.TITLE, item.title);
-            values.put(Items.DESCRIPTION, item.description);
-            values.put(Items.PUB_DATE, item.pubDate.getTime());
-            values.put(Items.LINK, item.link);
-            values.put(Items.READ, item.read);
-            values.put(Items.CHANNEL_ID, item.channel.id);
-            values.put(Items.UPDATE_TIME, item.updateTime);
-
+            item.summary = ItemSummary.render(item.description);
+            values = toContentValues(item);
             Uri contentUri = cr.insert(Items.CONTENT_URI, values);
             item.id = (int) ContentUris.parseId(contentUri);
 
         } else {
+            values = new ContentValues();
             values.put(Items.READ, item.read);
             cr.update(Items.CONTENT_URI, values, Provider.WHERE_ID,
                     new String[]{String.valueOf(item.id)});
@@ -209,48 +223,309 @@ public class ContentManager {
         return true;
     }
 
+    /**
+     * Inserts all the new items in a single transaction, skipping the ones
+     * already stored. The id of every inserted item is filled in.
+     *
+     * @return the number of inserted items
+     */
+    public static int saveItems(List<Item> items) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>(
+                items.size());
+        List<Item> newItems = Lists.newArrayList();
+        for (Item item : items) {
+            if (item.id == 0) {
+                // rendered here, off the UI thread, so lists never parse HTML
+                item.summary = ItemSummary.render(item.description);
+                operations.add(ContentProviderOperation
+                        .newInsert(Items.CONTENT_URI)
+                        .withValues(toContentValues(item)).build());
+                newItems.add(item);
+            }
+        }
+
+        if (operations.isEmpty())
+            return 0;
+
+        int savedItems = 0;
+        try {
+            ContentProviderResult[] results = cr.applyBatch(
+                    Provider.AUTHORITY, operations);
+            for (int i = 0; i < results.length; i++) {
+                int id = (int) ContentUris.parseId(results[i].uri);
+                if (id > 0) {
+                    newItems.get(i).id = id;
+                    savedItems++;
+                }
+            }
+        } catch (RemoteException e) {
+            Log.e("ERROR", "Failed to save items: " + e.getMessage());
+        } catch (OperationApplicationException e) {
+            Log.e("ERROR", "Failed to save items: " + e.getMessage());
+        }
+
+        return savedItems;
+    }
+
+    private static ContentValues toContentValues(Item item) {
+        ContentValues values = new ContentValues();
+        values.put(Items.TITLE, item.title);
+        values.put(Items.DESCRIPTION, item.description);
+        values.put(Items.SUMMARY, item.summary);
+        values.put(Items.PUB_DATE, item.pubDate.getTime());
+        values.put(Items.LINK, item.link);
+        values.put(Items.READ, item.read);
+        values.put(Items.CHANNEL_ID, item.channel.id);
+        values.put(Items.UPDATE_TIME, item.updateTime);
+        return values;
+    }
+
     public static Item loadItem(int id, ItemLoader loader,
                                 ChannelLoader channelLoader) {
-        Cursor cursor = cr.query(Items.CONTENT_URI, loader.getProjection(),
-                Items.ID + "=?", new String[]{String.valueOf(id)}, null);
+        ItemLoader rowLoader = joinChannel(loader, channelLoader);
+        Cursor cursor = cr.query(joinChannel(Items.CONTENT_URI, channelLoader),
+                rowLoader.getProjection(), Items.ID + "=?",
+                new String[]{String.valueOf(id)}, null);
+        JoinedChannels channels = joinedChannels(channelLoader);
         Item item = null;
         if (cursor.moveToNext()) {
-            item = loader.load(cursor);
-            if (channelLoader != null) {
-                item.channel = loadChannel(item.channel.id, channelLoader);
-            }
+            item = readItem(cursor, rowLoader, channels);
         }
         cursor.close();
 
         return item;
     }
 
+    /**
+     * Full-text search over title and description of all items.
+     *
+     * @param maxItems number of results; they are loaded with IN (...)
+     *                 queries of at most {@link #MAX_SQL_VARIABLES} ids
+     * @return the matching items, best match first, with
+     * {@link Item#snippet} set to the highlighted excerpt
+     */
+    public static List<Item> searchItems(String query, int maxItems,
+                                         ItemLoader loader, ChannelLoader channelLoader) {
+        List<Item> items = Lists.newArrayList();
+        SparseArray<String> snippets = new SparseArray<String>();
+        List<Integer> ids = Lists.newArrayList();
+
+        Cursor cursor = cr.query(Items.search(query, maxItems),
+                new String[]{Items.ID, Items.SNIPPET}, null, null, null);
+        while (cursor.moveToNext()) {
+            ids.add(cursor.getInt(0));
+            snippets.put(cursor.getInt(0), cursor.getString(1));
+        }
+        cursor.close();
+        if (ids.isEmpty()) {
+            return items;
+        }
+
+        SparseArray<Item> loaded = new SparseArray<Item>();
+        JoinedChannels channels = joinedChannels(channelLoader);
+        ItemLoader rowLoader = joinChannel(loader, channelLoader);
+        for (int from = 0; from < ids.size(); from += MAX_SQL_VARIABLES) {
+            List<Integer> chunk = ids.subList(from,
+                    Math.min(ids.size(), from + MAX_SQL_VARIABLES));
+            cursor = cr.query(joinChannel(Items.CONTENT_URI, channelLoader),
+                    rowLoader.getProjection(), whereIdIn(chunk.size()),
+                    toSelectionArgs(chunk), null);
+            while (cursor.moveToNext()) {
+                Item item = readItem(cursor, rowLoader, channels);
+                loaded.put(item.id, item);
+            }
+            cursor.close();
+        }
+
+        // keep the rank order of the search
+        for (Integer id : ids) {
+            Item item = loaded.get(id);
+            if (item == null) {
+                continue;
+            }
+            item.snippet = snippets.get(id);
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Loads only the descriptions of the given items, for the lists that
+     * read the rows with {@link #LIST_ITEM_LOADER}.
+     *
+     * @param ids at most {@link #MAX_SQL_VARIABLES} item ids
+     * @return the descriptions by item id
+     */
+    public static SparseArray<String> loadItemDescriptions(List<Integer> ids) {
+        SparseArray<String> descriptions = new SparseArray<String>();
+        if (ids.isEmpty()) {
+            return descriptions;
+        }
+        Cursor cursor = cr.query(Items.CONTENT_URI, new String[]{Items.ID,
+                Items.DESCRIPTION}, whereIdIn(ids.size()),
+                toSelectionArgs(ids), null);
+        while (cursor.moveToNext()) {
+            descriptions.put(cursor.getInt(0), BodyCodec.read(cursor, 1));
+        }
+        cursor.close();
+        return descriptions;
+    }
+
+    private static String whereIdIn(int count) {
+        StringBuilder selection = new StringBuilder(Items.ID + " IN (");
+        for (int i = 0; i < count; i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        return selection.append(")").toString();
+    }
+
+    private static String[] toSelectionArgs(List<Integer> ids) {
+        String[] selectionArgs = new String[ids.size()];
+        for (int i = 0; i < selectionArgs.length; i++) {
+            selectionArgs[i] = String.valueOf(ids.get(i));
+        }
+        return selectionArgs;
+    }
+
     public static List<Item> loadItems(ItemCriteria criteria,
                                        ItemLoader loader, ChannelLoader channelLoader) {
-        Cursor cursor = cr.query(criteria.getContentUri(),
-                loader.getProjection(), criteria.getSelection(),
+        ItemLoader rowLoader = joinChannel(loader, channelLoader);
+        Cursor cursor = cr.query(
+                joinChannel(criteria.getContentUri(), channelLoader),
+                rowLoader.getProjection(), criteria.getSelection(),
                 criteria.getSelectionArgs(), criteria.getOrderBy());
+        JoinedChannels channels = joinedChannels(channelLoader);
         List<Item> items = Lists.newArrayList();
-        items.clear();
         while (cursor.moveToNext()) {
-            Item item = loader.load(cursor);
-            if (channelLoader != null) {
-                item.channel = loadChannel(item.channel.id, channelLoader);
-            }
-            items.add(item);
+            items.add(readItem(cursor, rowLoader, channels));
         }
         cursor.close();
         return items;
     }
 
+    /**
+     * Loads the items of a channel one page at a time. The page is read from
+     * the position stored in the token, so its cost does not grow with the
+     * number of items already shown.
+     *
+     * @param token the {@link ItemPage#nextToken} of the previous page, null
+     *              for the first page
+     */
+    public static ItemPage loadItemPage(int channelId, String token,
+                                        int pageSize, ItemLoader loader, ChannelLoader channelLoader) {
+        // one more row tells whether there is a next page
+        ItemLoader rowLoader = joinChannel(loader, channelLoader);
+        Cursor cursor = queryCache.query(cr,
+                joinChannel(Items.page(token, pageSize + 1), channelLoader),
+                rowLoader.getProjection(), Items.CHANNEL_ID + "=?",
+                new String[]{String.valueOf(channelId)}, null);
+        return readPage(cursor, pageSize, rowLoader,
+                joinedChannels(channelLoader));
+    }
+
+    /**
+     * Loads one page of the timeline: the items of all the starred and not
+     * muted channels, newest first, as a single inbox.
+     *
+     * @param token      the {@link ItemPage#nextToken} of the previous page,
+     *                   null for the first page
+     * @param unreadOnly only the unread items
+     */
+    public static ItemPage loadTimeline(String token, int pageSize,
+                                        boolean unreadOnly, ItemLoader loader, ChannelLoader channelLoader) {
+        ItemLoader rowLoader = joinChannel(loader, channelLoader);
+        Cursor cursor = queryCache.query(cr, joinChannel(
+                Items.timeline(token, pageSize + 1, unreadOnly),
+                channelLoader), rowLoader.getProjection(), null, null, null);
+        return readPage(cursor, pageSize, rowLoader,
+                joinedChannels(channelLoader));
+    }
+
+    /**
+     * Reads a page from a cursor of at most pageSize + 1 rows, and closes
+     * it: the extra row tells whether there is a next page.
+     */
+    private static ItemPage readPage(Cursor cursor, int pageSize,
+                                     ItemLoader rowLoader, JoinedChannels channels) {
+        List<Item> items = Lists.newArrayList();
+        boolean hasNext = false;
+        while (cursor.moveToNext()) {
+            if (items.size() == pageSize) {
+                hasNext = true;
+                break;
+            }
+            items.add(readItem(cursor, rowLoader, channels));
+        }
+        cursor.close();
+
+        String nextToken = null;
+        if (hasNext) {
+            nextToken = PageToken.of(items.get(items.size() - 1)).encode();
+        }
+        return new ItemPage(items, nextToken);
+    }
+
+    private static ItemLoader joinChannel(ItemLoader loader,
+                                          ChannelLoader channelLoader) {
+        return channelLoader == null ? loader : new ChannelJoinItemLoader(
+                loader, channelLoader);
+    }
+
+    private static Uri joinChannel(Uri uri, ChannelLoader channelLoader) {
+        return channelLoader == null ? uri : Items.withChannel(uri);
+    }
+
+    /**
+     * @return the channels read from the joined rows of one query, null if
+     * the query has no channel columns
+     */
+    private static JoinedChannels joinedChannels(ChannelLoader channelLoader) {
+        return channelLoader == null ? null : new JoinedChannels(channelLoader);
+    }
+
+    /**
+     * Reads an item row. The channel columns of a joined row are fresh: the
+     * first row of a channel copies them into the cached instance, and the
+     * following rows of the same query reuse it, so all the items of a
+     * channel share one instance.
+     */
+    private static Item readItem(Cursor cursor, ItemLoader loader,
+                                 JoinedChannels channels) {
+        Item item = loader.load(cursor);
+        if (channels != null) {
+            item.channel = channels.intern(item.channel);
+        }
+        return item;
+    }
+
+    /**
+     * The channels of the joined rows of one query.
+     */
+    private static class JoinedChannels {
+        private final String[] columns;
+        private final SparseArray<Channel> channels = new SparseArray<Channel>();
+
+        JoinedChannels(ChannelLoader loader) {
+            columns = loader.getProjection();
+        }
+
+        Channel intern(Channel fresh) {
+            Channel channel = channels.get(fresh.id);
+            if (channel == null) {
+                channel = internChannel(fresh, columns);
+                channels.put(channel.id, channel);
+            }
+            return channel;
+        }
+    }
+
     public static List<Channel> loadAllChannels(ChannelLoader loader) {
-        Cursor cursor = cr.query(Channels.CONTENT_URI, loader.getProjection(),
-                null, null, null);
+        Cursor cursor = queryCache.query(cr, Channels.CONTENT_URI,
+                loader.getProjection(), null, null, null);
         List<Channel> channels = Lists.newArrayList();
         while (cursor.moveToNext()) {
-            Channel channel = loader.load(cursor);
-            putChannelToCache(channel);
-            channels.add(channel);
+            channels.add(internChannel(loader.load(cursor),
+                    loader.getProjection()));
         }
         cursor.close();
         return channels;
@@ -274,14 +549,7 @@ public class ContentManager {
     }
 
     public static boolean existSubscription(int lecturerId) {
-        Cursor cursor = cr.query(Channels.CONTENT_URI,
-                new String[]{Channels.LECTURER_ID}, Channels.LECTURER_ID
-                        + "=?", new String[]{String.valueOf(lecturerId)},
-                null);
-
-        boolean result = cursor.moveToFirst();
-        cursor.close();
-        return result;
+        return dao().existSubscription(lecturerId);
     }
 
     public static List<ContactItemInterface> loadAllLecturers(
@@ -365,27 +633,6 @@ public class ContentManager {
         return true;
     }
 
-    public static List<Integer> loadOldestImageIds(int keepMaxItems) {
-        Cursor cursor = cr.query(Images.CONTENT_URI,
-                new String[]{Images.COUNT}, null, null, null);
-        int totalImages = 0;
-        if (cursor.moveToNext()) {
-            totalImages = cursor.getInt(0);
-        }
-        cursor.close();
-        List<Integer> images = Lists.newArrayList();
-        if (totalImages - keepMaxItems > 0) {
-            cursor = cr.query(Images.limit(totalImages - keepMaxItems),
-                    new String[]{Images.ID}, null, null, Images.ID + " ASC");
-
-            while (cursor.moveToNext()) {
-                images.add(cursor.getInt(0));
-            }
-            cursor.close();
-        }
-        return images;
-    }
-
     public static void deleteImage(Image image) {
         cr.delete(Images.CONTENT_URI, Provider.WHERE_ID,
                 new String[]{String.valueOf(image.id)});
@@ -407,25 +654,11 @@ public class ContentManager {
     }
 
     public static void deleteAllLecturers() {
-        Cursor cursor = cr.query(Lecturers.CONTENT_URI,
-                new String[]{Lecturers.ID}, null, null, null);
-        while (cursor.moveToNext()) {
-            int id = cursor.getInt(0);
-            cr.delete(Lecturers.CONTENT_URI, Provider.WHERE_ID,
-                    new String[]{String.valueOf(id)});
-        }
-        cursor.close();
+        cr.delete(Lecturers.CONTENT_URI, null, null);
     }
 
     public static void deleteAllImages() {
-        Cursor cursor = cr.query(Images.CONTENT_URI,
-                new String[]{Images.ID}, null, null, null);
-        while (cursor.moveToNext()) {
-            int id = cursor.getInt(0);
-            cr.delete(Images.CONTENT_URI, Provider.WHERE_ID,
-                    new String[]{String.valueOf(id)});
-        }
-        cursor.close();
+        cr.delete(Images.CONTENT_URI, null, null);
     }
 
     public static boolean existItem(Item item) {
@@ -433,38 +666,19 @@ public class ContentManager {
     }
 
     public static boolean existItem(String link) {
-        Cursor cursor = cr.query(Items.CONTENT_URI, new String[]{Items.ID},
-                Items.LINK + "=?", new String[]{link}, null);
-        boolean result = cursor.moveToFirst();
-        cursor.close();
-        return result;
+        return dao().existItem(link);
     }
 
     public static boolean existChannel(Channel channel) {
-        Cursor cursor = cr.query(Channels.CONTENT_URI,
-                new String[]{Channels.ID}, Channels.URL + "=?",
-                new String[]{channel.url}, null);
-        boolean result = cursor.moveToFirst();
-        cursor.close();
-        return result;
+        return dao().existChannel(channel.url);
     }
 
     public static boolean existLecturer(Lecturer lecturer) {
-        Cursor cursor = cr.query(Lecturers.CONTENT_URI,
-                new String[]{Lecturers.ID}, Lecturers.ID + "=?",
-                new String[]{String.valueOf(lecturer.id)}, null);
-        boolean result = cursor.moveToFirst();
-        cursor.close();
-        return result;
+        return dao().existLecturer(lecturer.id);
     }
 
     public static boolean existImage(Image image) {
-        Cursor cursor = cr.query(Images.CONTENT_URI,
-                new String[]{Images.ID}, Images.URL + "=?",
-                new String[]{image.url}, null);
-        boolean result = cursor.moveToFirst();
-        cursor.close();
-        return result;
+        return dao().existImage(image.url);
     }
 
     public static void clearReadArticles() {
@@ -480,21 +694,49 @@ public class ContentManager {
     }
 
     public static void markAllItemsOfChannelAsRead(Channel channel) {
-        Cursor cursor = cr.query(Items.CONTENT_URI, new String[]{Items.ID,},
-                Items.CHANNEL_ID + "=? AND " + Items.READ + "=0",
-                new String[]{String.valueOf(channel.id)}, null);
-        Item item = new Item();
-        while (cursor.moveToNext()) {
-            item.id = cursor.getInt(0);
-            item.read = Item.UNREAD;
-            markItemAsRead(item);
-        }
-
-        cursor.close();
+        markChannelsAsRead(channel.id);
         for (Item channelItem : channel.getItems()) {
             channelItem.read = Item.READ;
         }
+    }
+
+    /**
+     * Marks all the unread items of the channels as read with a single
+     * UPDATE.
+     *
+     * @return the number of items marked as read
+     */
+    public static int markChannelsAsRead(int... channelIds) {
+        if (channelIds.length == 0) {
+            return 0;
+        }
+        StringBuilder where = new StringBuilder(Items.CHANNEL_ID + " IN (");
+        String[] whereArgs = new String[channelIds.length];
+        for (int i = 0; i < channelIds.length; i++) {
+            where.append(i == 0 ? "?" : ",?");
+            whereArgs[i] = String.valueOf(channelIds[i]);
+        }
+        where.append(")");
+        return markAsRead(where.toString(), whereArgs);
+    }
 
+    /**
+     * Marks as read, with a single UPDATE, all the unread items of every
+     * channel published before the given time.
+     *
+     * @return the number of items marked as read
+     */
+    public static int markItemsAsReadOlderThan(long time) {
+        return markAsRead(Items.PUB_DATE + "<?",
+                new String[]{String.valueOf(time)});
+    }
+
+    private static int markAsRead(String where, String[] whereArgs) {
+        ContentValues values = new ContentValues();
+        values.put(Items.READ, Item.READ);
+        // one statement: atomic, and a single change notification
+        return cr.update(Items.CONTENT_URI, values, Items.READ + "="
+                + Item.UNREAD + " AND " + where, whereArgs);
     }
 
     public static void saveItemReadState(Item item, int readState) {
@@ -502,10 +744,7 @@ public class ContentManager {
             return;
 
         item.read = Item.READ;
-        ContentValues values = new ContentValues();
-        values.put(Items.READ, readState);
-        cr.update(Items.CONTENT_URI, values, Provider.WHERE_ID,
-                new String[]{String.valueOf(item.id)});
+        dao().updateItemRead(item.id, readState);
 
         String key = String.valueOf(item.id);
         if (!recentReadArticles.contains(key)) {
@@ -518,11 +757,8 @@ public class ContentManager {
             return;
 
         channel.starred = true;
-        ContentValues values = new ContentValues();
         if (channel.id != 0) {
-            values.put(Channels.STARRED, 1);
-            cr.update(Channels.CONTENT_URI, values, Provider.WHERE_ID,
-                    new String[]{String.valueOf(channel.id)});
+            dao().updateChannelStarred(channel.id, true);
         }
     }
 
@@ -531,11 +767,8 @@ public class ContentManager {
             return;
 
         channel.starred = false;
-        ContentValues values = new ContentValues();
         if (channel.id != 0) {
-            values.put(Channels.STARRED, 0);
-            cr.update(Channels.CONTENT_URI, values, Provider.WHERE_ID,
-                    new String[]{String.valueOf(channel.id)});
+            dao().updateChannelStarred(channel.id, false);
         }
     }
 
@@ -544,11 +777,8 @@ public class ContentManager {
             return;
 
         channel.mute = true;
-        ContentValues values = new ContentValues();
         if (channel.id != 0) {
-            values.put(Channels.MUTE, 1);
-            cr.update(Channels.CONTENT_URI, values, Provider.WHERE_ID,
-                    new String[]{String.valueOf(channel.id)});
+            dao().updateChannelMute(channel.id, true);
         }
     }
 
@@ -557,25 +787,20 @@ public class ContentManager {
             return;
 
         channel.mute = false;
-        ContentValues values = new ContentValues();
         if (channel.id != 0) {
-            values.put(Channels.MUTE, 0);
-            cr.update(Channels.CONTENT_URI, values, Provider.WHERE_ID,
-                    new String[]{String.valueOf(channel.id)});
+            dao().updateChannelMute(channel.id, false);
         }
     }
 
     /**
-     * @param cr
+     * The counts are kept up to date by triggers on the items table, so this
+     * reads one row for each channel.
+     *
      * @return a map of ChannelId <-> Unread count
      */
     public static SparseIntArray countUnreadItemsForEachChannel() {
-        Cursor cursor = cr.query(
-                Items.countUnreadEachChannel(),
-                new String[]{Items.CHANNEL_ID, Items.UNREAD_COUNT},
-                Items.READ + "=? OR " + Items.READ + "=?",
-                new String[]{String.valueOf(Item.UNREAD),
-                        String.valueOf(Item.KEPT_UNREAD)}, null);
+        Cursor cursor = queryCache.query(cr, Channels.CONTENT_URI,
+                new String[]{Channels.ID, Channels.UNREAD}, null, null, null);
 
         SparseIntArray unreadCounts = new SparseIntArray(cursor.getCount());
         while (cursor.moveToNext()) {
@@ -586,40 +811,56 @@ public class ContentManager {
     }
 
     public static int countUnreadItems() {
-        Cursor cursor = cr.query(
-                Items.countUnread(),
-                new String[]{Items.UNREAD_COUNT},
-                Items.READ + "=? OR " + Items.READ + "=?",
-                new String[]{String.valueOf(Item.UNREAD),
-                        String.valueOf(Item.KEPT_UNREAD)}, null);
-        int unreadCounts = 0;
-        if (cursor.moveToNext()) {
-            unreadCounts = cursor.getInt(0);
-        }
-        cursor.close();
-        return unreadCounts;
+        return dao().countUnreadItems();
     }
 
-    private static boolean isChannelInCache(int channelId) {
-        return channelCache.indexOfKey(channelId) >= 0;
+    /**
+     * @return the queries served by the result cache since the start
+     */
+    public static long getQueryCacheHits() {
+        return queryCache.getHits();
+    }
+
+    /**
+     * @return the cacheable queries run against the provider since the
+     * start
+     */
+    public static long getQueryCacheMisses() {
+        return queryCache.getMisses();
     }
 
-    private static void putChannelToCache(Channel channel) {
-        if (!isChannelInCache(channel.id)) {
-            channelCache.put(channel.id, new WeakReference<Channel>(channel));
+    private static Dao dao() {
+        return Dao.getInstance(Application.getInstance());
+    }
+
+    /**
+     * @param columns the columns read into the channel: fresh, they are
+     *                copied into the cached instance
+     * @return the cached instance of the channel, or the given one after
+     * caching it. The cached instance is kept, so its updating state and
+     * its observers survive a reload.
+     */
+    private static Channel internChannel(Channel channel, String[] columns) {
+        synchronized (channelCache) {
+            Channel cached = channelCache.get(channel.id);
+            if (cached != null) {
+                cached.copyColumns(channel, columns);
+                return cached;
+            }
+            channelCache.put(channel.id, channel);
+            return channel;
         }
     }
 
     private static Channel getChannelFromCache(int id) {
-        if (isChannelInCache(id)) {
-            WeakReference<Channel> channelRef = channelCache.get(id);
-            return channelRef.get();
+        synchronized (channelCache) {
+            return channelCache.get(id);
         }
-        return null;
     }
 
     public static void clearDatabase() {
         Application.getInstance().deleteDatabase(DatabaseHelper.DATABASE_NAME);
+        queryCache.clear();
     }
 
     public static void unsubscribe(Channel channel) {
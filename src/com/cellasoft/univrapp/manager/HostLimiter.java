@@ -0,0 +1,67 @@
+package com.cellasoft.univrapp.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Politeness of the parallel synchronization towards every host: at most a
+ * few feeds of the same host are downloaded at once, and two downloads from
+ * the same host start at least a minimum interval apart.
+ */
+class HostLimiter {
+    private final int maxPerHost;
+    private final long minInterval;
+    private final Map<String, Host> hosts = new HashMap<String, Host>();
+
+    HostLimiter(int maxPerHost, long minInterval) {
+        this.maxPerHost = maxPerHost;
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Waits for a free slot of the host and for its turn; the slot must be
+     * given back with {@link #release(String)}.
+     */
+    void acquire(String host) throws InterruptedException {
+        Host state = getHost(host);
+        state.permits.acquire();
+        long wait;
+        synchronized (state) {
+            long now = System.currentTimeMillis();
+            long start = Math.max(now, state.nextStart);
+            state.nextStart = start + minInterval;
+            wait = start - now;
+        }
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                state.permits.release();
+                throw e;
+            }
+        }
+    }
+
+    void release(String host) {
+        getHost(host).permits.release();
+    }
+
+    private synchronized Host getHost(String host) {
+        Host state = hosts.get(host);
+        if (state == null) {
+            state = new Host(new Semaphore(maxPerHost));
+            hosts.put(host, state);
+        }
+        return state;
+    }
+
+    private static class Host {
+        final Semaphore permits;
+        long nextStart;
+
+        Host(Semaphore permits) {
+            this.permits = permits;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.cellasoft.univrapp.manager;
+
+import com.cellasoft.univrapp.model.Channel;
+import com.cellasoft.univrapp.model.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Last stage of the feed update: the parsed items are written in chunks of
+ * {@link #CHUNK_SIZE}, each in its own transaction, while the feed is still
+ * being read. Only one chunk is held in memory, whatever the number of
+ * items of the feed, and every chunk is visible as soon as it is written.
+ * Links already stored are skipped by the unique index of the items table.
+ */
+public class ItemWriter {
+    public static final int CHUNK_SIZE = 10;
+
+    private final Channel channel;
+    private final OnItemsSavedListener listener;
+    private List<Item> chunk = new ArrayList<Item>(CHUNK_SIZE);
+    private int savedItems;
+    // checked with the first chunk: a feed with no new items does not
+    // touch the database
+    private Boolean channelStored;
+
+    public ItemWriter(Channel channel, OnItemsSavedListener listener) {
+        this.channel = channel;
+        this.listener = listener;
+    }
+
+    public void add(Item item) {
+        chunk.add(item);
+        if (chunk.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the items still in the chunk.
+     */
+    public void flush() {
+        if (chunk.isEmpty())
+            return;
+
+        List<Item> items = chunk;
+        chunk = new ArrayList<Item>(CHUNK_SIZE);
+
+        if (channelStored == null) {
+            channelStored = ContentManager.existChannel(channel);
+        }
+        // items of a channel not stored are not saved
+        if (!channelStored)
+            return;
+
+        int saved;
+        ContentManager.beginBatch();
+        try {
+            saved = ContentManager.saveItems(items);
+        } finally {
+            ContentManager.endBatch();
+        }
+        savedItems += saved;
+
+        if (listener != null && saved > 0) {
+            List<Item> newItems = new ArrayList<Item>(saved);
+            for (Item item : items) {
+                if (item.id > 0) {
+                    newItems.add(item);
+                }
+            }
+            listener.onItemsSaved(newItems);
+        }
+    }
+
+    /**
+     * @return the number of items written, the duplicates excluded
+     */
+    public int getSavedItems() {
+        return savedItems;
+    }
+
+    public interface OnItemsSavedListener {
+        /**
+         * Called on the updating thread after every written chunk, newest
+         * item first.
+         */
+        void onItemsSaved(List<Item> items);
+    }
+}
@@ -0,0 +1,199 @@
+package com.cellasoft.univrapp.manager;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Build;
+import com.cellasoft.univrapp.model.Channel.Channels;
+import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.provider.Provider;
+import com.cellasoft.univrapp.utils.UIUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of query results, kept as copies of their rows and handed out
+ * as new cursors. An entry is dropped when the provider notifies a change
+ * of its table. The items and the channels tables invalidate each other:
+ * the triggers on the items update the unread counts of the channels, and
+ * the item queries can join the channels.
+ * <p/>
+ * The BLOB columns are not copied, so the queries that read the
+ * descriptions are never cached.
+ */
+final class QueryCache implements Provider.ChangeListener {
+    // results bigger than this are not cached
+    private static final int MAX_ROWS = 256;
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    /**
+     * Incremented by every invalidation: a result read while a change was
+     * notified may already be stale, and is not stored.
+     */
+    private long generation;
+
+    QueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        Provider.addChangeListener(this);
+    }
+
+    Cursor query(ContentResolver cr, Uri uri, String[] projection,
+                 String selection, String[] selectionArgs, String sortOrder) {
+        String key = key(uri, projection, selection, selectionArgs, sortOrder);
+        long queryGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry.newCursor();
+            }
+            queryGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        Cursor cursor = cr.query(uri, projection, selection, selectionArgs,
+                sortOrder);
+        if (cursor == null || cursor.getCount() > MAX_ROWS
+                || readsDescriptions(projection)) {
+            return cursor;
+        }
+        Entry entry;
+        try {
+            entry = new Entry(tableOf(uri), cursor);
+        } finally {
+            cursor.close();
+        }
+        synchronized (this) {
+            if (queryGeneration == generation) {
+                entries.put(key, entry);
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> eldest = entries.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        return entry.newCursor();
+    }
+
+    @Override
+    public synchronized void onChange(Uri uri) {
+        generation++;
+        String table = tableOf(uri);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().table.equals(table)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private static String key(Uri uri, String[] projection, String selection,
+                              String[] selectionArgs, String sortOrder) {
+        StringBuilder key = new StringBuilder(uri.toString());
+        appendAll(key.append('\u0000'), projection);
+        key.append('\u0000').append(selection);
+        appendAll(key.append('\u0000'), selectionArgs);
+        return key.append('\u0000').append(sortOrder).toString();
+    }
+
+    private static void appendAll(StringBuilder key, String[] values) {
+        if (values != null) {
+            for (String value : values) {
+                key.append(value).append('\u0001');
+            }
+        }
+    }
+
+    private static boolean readsDescriptions(String[] projection) {
+        if (projection == null) {
+            return true;
+        }
+        for (String column : projection) {
+            if (Items.DESCRIPTION.equals(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the table read or changed through the uri, the items table
+     * for the channels
+     */
+    private static String tableOf(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        String table = segments.isEmpty() ? "" : segments.get(0);
+        return Channels.CONTENT_URI.getLastPathSegment().equals(table)
+                ? Items.CONTENT_URI.getLastPathSegment() : table;
+    }
+
+    private static class Entry {
+        final String table;
+        final String[] columns;
+        final List<Object[]> rows;
+
+        Entry(String table, Cursor cursor) {
+            this.table = table;
+            this.columns = cursor.getColumnNames();
+            this.rows = new ArrayList<Object[]>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                Object[] row = new Object[columns.length];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = getValue(cursor, i);
+                }
+                rows.add(row);
+            }
+        }
+
+        @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+        private static Object getValue(Cursor cursor, int column) {
+            if (!UIUtils.hasHoneycomb()) {
+                // MatrixCursor parses the numbers back
+                return cursor.getString(column);
+            }
+            switch (cursor.getType(column)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    return cursor.getLong(column);
+                case Cursor.FIELD_TYPE_FLOAT:
+                    return cursor.getDouble(column);
+                case Cursor.FIELD_TYPE_NULL:
+                    return null;
+                default:
+                    return cursor.getString(column);
+            }
+        }
+
+        Cursor newCursor() {
+            MatrixCursor cursor = new MatrixCursor(columns, rows.size());
+            for (Object[] row : rows) {
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package com.cellasoft.univrapp.manager;
 
+import android.net.Uri;
+import android.text.format.DateUtils;
+import com.cellasoft.univrapp.Application;
 import com.cellasoft.univrapp.BuildConfig;
 import com.cellasoft.univrapp.ConnectivityReceiver;
 import com.cellasoft.univrapp.Settings;
 import com.cellasoft.univrapp.model.Channel;
-import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.provider.DatabaseStats;
+import com.cellasoft.univrapp.provider.Provider;
+import com.cellasoft.univrapp.provider.Retention;
+import com.cellasoft.univrapp.utils.DecodingInputStream;
+import com.cellasoft.univrapp.utils.HttpStack;
 import com.cellasoft.univrapp.utils.Lists;
 import com.cellasoft.univrapp.widget.SynchronizationListener;
 
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.cellasoft.univrapp.utils.LogUtils.*;
 
 public class SynchronizationManager {
     private static final String TAG = makeLogTag(SynchronizationManager.class);
+    private static final int MAX_PARALLEL_SYNCS = 4;
+    private static final int MAX_SYNCS_PER_HOST = 2;
+    // between two downloads from the same host
+    private static final long MIN_HOST_INTERVAL = 250;
 
     private static SynchronizationManager instance;
     private Object synRoot = new Object();
@@ -62,6 +80,21 @@ public class SynchronizationManager {
 
             if (BuildConfig.DEBUG) {
                 LOGD(TAG, "Stop synchronization at " + new Date());
+                LOGD(TAG, "Database waits: " + DatabaseStats.dump());
+                LOGD(TAG, "Notifications saved: "
+                        + Provider.getNotificationsSaved());
+                LOGD(TAG, "Query cache: "
+                        + ContentManager.getQueryCacheHits() + " hits, "
+                        + ContentManager.getQueryCacheMisses() + " misses");
+                LOGD(TAG, "Transfer: "
+                        + DecodingInputStream.getTotalWireBytes()
+                        + " bytes received, "
+                        + DecodingInputStream.getTotalDecodedBytes()
+                        + " decoded");
+                LOGD(TAG, "HTTP: " + HttpStack.getRequests() + " requests, "
+                        + HttpStack.getConnectionsOpened()
+                        + " connections opened, "
+                        + HttpStack.getConnectionsReused() + " reused");
             }
         }
 
@@ -94,73 +127,156 @@ public class SynchronizationManager {
         }
     }
 
-    public void onSynchronizationStart(int id) {
+    /**
+     * The channels are synchronized in parallel: the listeners are called
+     * one at a time, from the synchronizing threads.
+     */
+    public synchronized void onSynchronizationStart(int id) {
         for (SynchronizationListener listener : synchronizationListeners) {
             listener.onStart(id);
         }
     }
 
-    protected void onSynchronizationProgress(int id, long updateTime) {
+    protected synchronized void onSynchronizationProgress(int id,
+                                                          long updateTime) {
         for (SynchronizationListener listener : synchronizationListeners) {
             listener.onProgress(id, updateTime);
         }
     }
 
-    protected void onSynchronizationFinish(int totalNewItems) {
+    protected synchronized void onSynchronizationFinish(int totalNewItems) {
         for (SynchronizationListener listener : synchronizationListeners) {
             listener.onFinish(totalNewItems);
         }
     }
 
+    /**
+     * Synchronizes the starred channels on a bounded pool of threads. The
+     * channels are queued alternating their hosts, and {@link HostLimiter}
+     * keeps every host to a few downloads at once, spaced out, so the sync
+     * takes about as long as the busiest host needs.
+     */
     protected int syncFeeds() {
-        int totalNewItems = 0;
-        int maxItemsForChannel = Settings.getMaxItemsForChannel();
-        List<Channel> channels = Lists.newArrayList();
+        final AtomicInteger totalNewItems = new AtomicInteger();
+        final int maxItemsForChannel = Settings.getMaxItemsForChannel();
+        final HostLimiter hostLimiter = new HostLimiter(MAX_SYNCS_PER_HOST,
+                MIN_HOST_INTERVAL);
 
-        channels = Channel
+        List<Channel> channels = Channel
                 .loadAllChannels(ContentManager.LIGHTWEIGHT_CHANNEL_LOADER);
 
-        for (Channel channel : channels) {
+        ExecutorService executor = Executors
+                .newFixedThreadPool(MAX_PARALLEL_SYNCS);
+        for (final Channel channel : interleaveHosts(channels)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    syncChannel(channel, maxItemsForChannel, hostLimiter,
+                            totalNewItems);
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            LOGE(TAG, e.getMessage());
+            executor.shutdownNow();
+        }
+
+        // clean up memory
+        channels.clear();
+        channels = null;
+
+        applyRetention();
+        HttpStack.closeIdleConnections();
+
+        return totalNewItems.get();
+    }
+
+    private void syncChannel(Channel channel, int maxItemsForChannel,
+                             HostLimiter hostLimiter, AtomicInteger totalNewItems) {
+        synchronized (synRoot) {
+            if (!synchronizing)
+                return;
+        }
+
+        String host = hostOf(channel);
+        try {
+            hostLimiter.acquire(host);
+        } catch (InterruptedException e) {
+            LOGE(TAG, e.getMessage());
+            return;
+        }
+        try {
+            int newItems = channel.update(maxItemsForChannel);
+            if (newItems > 0 && !channel.mute) {
+                totalNewItems.addAndGet(newItems);
+            }
 
+            // clean up memory
+            channel.clearItems();
+        } catch (Throwable e) {
+            LOGE(TAG, e.getMessage());
+        } finally {
+            hostLimiter.release(host);
+        }
+
+        onSynchronizationProgress(channel.id, channel.updateTime);
+    }
+
+    /**
+     * @return the starred channels, taking one channel of every host in
+     * turn, so the pool is not filled with the channels of a single host
+     */
+    private static List<Channel> interleaveHosts(List<Channel> channels) {
+        Map<String, List<Channel>> byHost = new LinkedHashMap<String, List<Channel>>();
+        for (Channel channel : channels) {
             // sync selected channels
             if (channel.starred) {
-                VALIDATION:
-                {
-                    synchronized (synRoot) {
-                        if (!synchronizing)
-                            break VALIDATION;
-                    }
-
-                    try {
-                        List<Item> newItems = channel
-                                .update(maxItemsForChannel);
-                        if (!channel.mute) {
-                            totalNewItems += newItems.size();
-                        }
-
-                        // clean up memory
-                        channel.clearItems();
-                        ContentManager.cleanUp(channel,
-                                Settings.getKeepMaxItems());
-                    } catch (Throwable e) {
-                        LOGE(TAG, e.getMessage());
-                    }
-
-                    onSynchronizationProgress(channel.id, channel.updateTime);
-
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        LOGE(TAG, e.getMessage());
-                    }
+                String host = hostOf(channel);
+                List<Channel> hostChannels = byHost.get(host);
+                if (hostChannels == null) {
+                    hostChannels = Lists.newArrayList();
+                    byHost.put(host, hostChannels);
                 }
+                hostChannels.add(channel);
             }
         }
 
-        // clean up memory
-        channels.clear();
-        channels = null;
+        List<Channel> interleaved = Lists.newArrayList();
+        for (int i = 0; ; i++) {
+            boolean added = false;
+            for (List<Channel> hostChannels : byHost.values()) {
+                if (i < hostChannels.size()) {
+                    interleaved.add(hostChannels.get(i));
+                    added = true;
+                }
+            }
+            if (!added) {
+                return interleaved;
+            }
+        }
+    }
 
-        return totalNewItems;
+    private static String hostOf(Channel channel) {
+        String host = channel.url == null ? null : Uri.parse(channel.url)
+                .getHost();
+        return host == null ? "" : host.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Deletes the old items and images of all the channels at once, after
+     * the new ones have been saved.
+     */
+    private void applyRetention() {
+        try {
+            new Retention(Application.getInstance()).apply(
+                    Settings.getKeepMaxItems(),
+                    Settings.getMaxItemAgeDays() * DateUtils.DAY_IN_MILLIS,
+                    Settings.getKeepMaxImages());
+        } catch (Throwable e) {
+            LOGE(TAG, e.getMessage());
+        }
     }
 }
@@ -7,6 +7,8 @@ import com.cellasoft.univrapp.Config;
 import com.cellasoft.univrapp.UnivrReaderFactory;
 import com.cellasoft.univrapp.loader.ChannelLoader;
 import com.cellasoft.univrapp.manager.ContentManager;
+import com.cellasoft.univrapp.manager.ItemWriter;
+import com.cellasoft.univrapp.manager.ItemWriter.OnItemsSavedListener;
 import com.cellasoft.univrapp.manager.SynchronizationManager;
 import com.cellasoft.univrapp.provider.Provider;
 import com.cellasoft.univrapp.reader.UnivrReader;
@@ -34,8 +36,15 @@ public class Channel extends Observable implements ActionSupport, Serializable {
     public boolean isSelected;
     public boolean starred;
     public boolean mute = false;
+    /**
+     * HTTP validators of the last download of the feed, sent back to get a
+     * 304 when the feed did not change.
+     */
+    public String etag;
+    public String lastModified;
     private transient ActiveList<Item> items = new ActiveList<Item>();
     private Object synRoot = new Object();
+    private transient boolean notModified;
 
     public Channel() {
         this.id = 0;
@@ -80,6 +89,8 @@ public class Channel extends Observable implements ActionSupport, Serializable {
         this.isSelected = channel.isSelected;
         this.starred = channel.starred;
         this.mute = channel.mute;
+        this.etag = channel.etag;
+        this.lastModified = channel.lastModified;
         this.updating = channel.updating;
     }
 
@@ -137,77 +148,132 @@ public class Channel extends Observable implements ActionSupport, Serializable {
         }
     }
 
+    /**
+     * Copies the given columns of a channel loaded from the database, the
+     * state of this instance is left as is.
+     */
+    public void copyColumns(Channel from, String[] columns) {
+        for (String column : columns) {
+            if (Channels.LECTURER_ID.equals(column)) {
+                lecturerId = from.lecturerId;
+            } else if (Channels.TITLE.equals(column)) {
+                title = from.title;
+            } else if (Channels.URL.equals(column)) {
+                url = from.url;
+            } else if (Channels.DESCRIPTION.equals(column)) {
+                description = from.description;
+            } else if (Channels.UPDATE_TIME.equals(column)) {
+                updateTime = from.updateTime;
+            } else if (Channels.STARRED.equals(column)) {
+                starred = from.starred;
+            } else if (Channels.MUTE.equals(column)) {
+                mute = from.mute;
+            } else if (Channels.IMAGE_URL.equals(column)) {
+                imageUrl = from.imageUrl;
+            } else if (Channels.UNREAD.equals(column)) {
+                unread = from.unread;
+            } else if (Channels.ETAG.equals(column)) {
+                etag = from.etag;
+            } else if (Channels.LAST_MODIFIED.equals(column)) {
+                lastModified = from.lastModified;
+            }
+        }
+    }
+
     public boolean isUpdating() {
         synchronized (synRoot) {
             return updating;
         }
     }
 
-    public List<Item> update(int maxItems) {
+    public int update(int maxItems) {
+        return update(maxItems, null);
+    }
+
+    /**
+     * Downloads the feed and writes its new items while they are parsed,
+     * see {@link ItemWriter}.
+     *
+     * @param listener told of every chunk of new items written, may be null
+     * @return the number of new items, -1 if the channel is already updating
+     */
+    public int update(int maxItems, OnItemsSavedListener listener) {
         synchronized (synRoot) {
             if (updating)
-                return null;
+                return -1;
             updating = true;
             SynchronizationManager.getInstance().onSynchronizationStart(id);
             this.setChanged();
             this.notifyObservers(updating);
         }
 
-        List<Item> newItems = updateItems(maxItems);
-        updateTime = new Timestamp(System.currentTimeMillis()).getTime();
-        save();
-
-        saveItems(newItems);
+        try {
+            ItemWriter writer = new ItemWriter(this, listener);
+            try {
+                updateItems(maxItems, writer);
+            } finally {
+                // the items parsed before an error are kept
+                writer.flush();
+            }
 
-        synchronized (synRoot) {
-            updating = false;
-            this.setChanged();
-            this.notifyObservers(updating);
+            // not modified: nothing to write. The validators are saved
+            // after the items, and only those of a feed read to the end
+            // (see UnivrReader), so an interrupted update is downloaded
+            // again.
+            if (!notModified) {
+                updateTime = new Timestamp(System.currentTimeMillis()).getTime();
+                save();
+            }
+            return writer.getSavedItems();
+        } finally {
+            synchronized (synRoot) {
+                updating = false;
+                this.setChanged();
+                this.notifyObservers(updating);
+            }
         }
-
-        return newItems;
     }
 
-    protected List<Item> updateItems(int maxItems) {
+    protected void updateItems(int maxItems, final ItemWriter writer) {
         int numberOfFetchedItems = 0;
         RSSFeed feed = null;
+        notModified = false;
         try {
             UnivrReader reader = UnivrReaderFactory.getUnivrReader();
             while (true) {
-                feed = reader.fetchEntriesOfFeed(this, maxItems,
-                        new OnNewEntryCallback() {
-
-                            @Override
-                            public void onNewEntry(Item item) {
-                                if (item.exist()) {
-                                    throw new RuntimeException(
-                                            "Found exist item. Stop parsing "
-                                                    + Channel.this.title);
-                                } else {
-                                    item.channel = Channel.this;
-                                }
-                            }
-                        });
-
-                List<Item> entries = feed.getEntries();
-                long updateTime = System.currentTimeMillis();
-                for (int i = entries.size() - 1; i >= 0; i--) {
-                    Item item = entries.get(i);
-                    item.updateTime = updateTime++;
-                    this.addItem(0, item);
-                }
+                // the newest item first
+                final long updateTime = System.currentTimeMillis();
+                OnNewEntryCallback callback = new OnNewEntryCallback() {
+                    private int position;
+
+                    @Override
+                    public boolean isKnown(String link) {
+                        // one lookup on the unique index of the links, of
+                        // any channel: the parse stops at the first hit
+                        return ContentManager.existItem(link);
+                    }
 
-                numberOfFetchedItems += feed.getEntries().size();
-                if (numberOfFetchedItems >= maxItems
-                        || feed.getEntries().size() < Config.MAX_ITEMS_PER_FETCH) {
+                    @Override
+                    public void onNewEntry(Item item) {
+                        item.channel = Channel.this;
+                        item.updateTime = updateTime - position++;
+                        writer.add(item);
+                    }
+                };
+                RSSFeed fetched = reader.fetchEntriesOfFeed(this, maxItems,
+                        callback);
+                if (fetched.isNotModified()) {
+                    // a later fetch of the loop keeps the entries already
+                    // fetched
+                    notModified = feed == null;
                     break;
                 }
+                feed = fetched;
 
-                try {
-                    Thread.yield();
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                numberOfFetchedItems += feed.size();
+                if (numberOfFetchedItems >= maxItems
+                        || feed.size() < Config.MAX_ITEMS_PER_FETCH) {
+                    break;
                 }
             }
         } catch (RuntimeException e) {
@@ -216,26 +282,6 @@ public class Channel extends Observable implements ActionSupport, Serializable {
         } catch (Exception e) {
             Log.e("ERROR", e.getMessage());
         }
-
-        if (feed != null)
-            return feed.getEntries();
-
-        return null;
-    }
-
-    private int saveItems(List<Item> items) {
-        int newItems = 0;
-        if (items != null && !items.isEmpty()) {
-            if (exist()) {
-                for (Item item : items) {
-                    if (item.save()) {
-                        newItems++;
-                    }
-                }
-            }
-        }
-
-        return newItems;
     }
 
     public boolean isEmpty() {
@@ -322,9 +368,13 @@ public class Channel extends Observable implements ActionSupport, Serializable {
         public static final String DESCRIPTION = "DESCRIPTION";
         public static final String UPDATE_TIME = "UPDATE_TIME";
         public static final String UNREAD = "UNREAD";
+        public static final String UNREAD_COUNT = "UNREAD_COUNT";
+        public static final String TOTAL_UNREAD = "TOTAL_UNREAD";
         public static final String STARRED = "STARRED";
         public static final String MUTE = "MUTE";
         public static final String IMAGE_URL = "IMAGE_URL";
+        public static final String ETAG = "ETAG";
+        public static final String LAST_MODIFIED = "LAST_MODIFIED";
 
         private Channels() {
         }
@@ -2,6 +2,7 @@ package com.cellasoft.univrapp.model;
 
 import com.cellasoft.univrapp.R;
 import com.cellasoft.univrapp.UnivrReaderFactory;
+import com.cellasoft.univrapp.manager.ContentManager;
 import com.cellasoft.univrapp.reader.UnivrReader;
 import com.cellasoft.univrapp.utils.LecturersHandler;
 import com.cellasoft.univrapp.utils.Lists;
@@ -139,7 +140,13 @@ public class Department {
 
         List<ContactItemInterface> lecturers = updateLecturers();
 
-        List<ContactItemInterface> newItems = saveLecturers(lecturers);
+        List<ContactItemInterface> newItems;
+        ContentManager.beginBatch();
+        try {
+            newItems = saveLecturers(lecturers);
+        } finally {
+            ContentManager.endBatch();
+        }
 
         synchronized (synRoot) {
             updating = false;
@@ -28,6 +28,10 @@ public class Item implements ActionSupport, Comparable<Item>, Serializable {
     public int read;
     public long updateTime;
     public Channel channel;
+    // plain text rendered from the description when the item is saved
+    public String summary;
+    // highlighted excerpt, set only on search results
+    public String snippet;
 
     public Item() {
         this.id = 0;
@@ -142,6 +146,7 @@ public class Item implements ActionSupport, Comparable<Item>, Serializable {
         public static final String ID = "ID";
         public static final String TITLE = "TITLE";
         public static final String DESCRIPTION = "DESCRIPTION";
+        public static final String SUMMARY = "SUMMARY";
         public static final String PUB_DATE = "PUB_DATE";
         public static final String LINK = "LINK";
         public static final String READ = "READ";
@@ -149,6 +154,13 @@ public class Item implements ActionSupport, Comparable<Item>, Serializable {
         public static final String UPDATE_TIME = "UPDATE_TIME";
         public static final String UNREAD_COUNT = "UNREAD";
         public static final String COUNT = "COUNT(DISTINCT ID)";
+        public static final String PAGE_TOKEN_PARAM = "token";
+        public static final String PAGE_SIZE_PARAM = "limit";
+        public static final String SEARCH_QUERY_PARAM = "q";
+        public static final String SNIPPET = "SNIPPET";
+        public static final String JOIN_CHANNEL_PARAM = "channel";
+        public static final String UNREAD_ONLY_PARAM = "unread";
+        public static final String CHANNEL_COLUMN_PREFIX = "CH_";
 
         public static final Uri hasTagAndLimit(int limit) {
             return Uri.parse("content://" + Provider.AUTHORITY + "/items/tag/"
@@ -180,5 +192,63 @@ public class Item implements ActionSupport, Comparable<Item>, Serializable {
                     + limit + "/" + offset);
         }
 
+        /**
+         * The same item list joined with the channel of every item, whose
+         * columns are named with {@link #CHANNEL_COLUMN_PREFIX}.
+         */
+        public static final Uri withChannel(Uri uri) {
+            return uri.buildUpon()
+                    .appendQueryParameter(JOIN_CHANNEL_PARAM, "true").build();
+        }
+
+        public static final Uri search(String query, int limit) {
+            return Uri
+                    .parse("content://" + Provider.AUTHORITY + "/items/search")
+                    .buildUpon()
+                    .appendQueryParameter(SEARCH_QUERY_PARAM, query)
+                    .appendQueryParameter(PAGE_SIZE_PARAM,
+                            String.valueOf(limit)).build();
+        }
+
+        /**
+         * @param token opaque token of the previous page, null for the first
+         *              page
+         */
+        public static final Uri page(String token, int pageSize) {
+            Uri.Builder builder = Uri
+                    .parse("content://" + Provider.AUTHORITY + "/items/page")
+                    .buildUpon()
+                    .appendQueryParameter(PAGE_SIZE_PARAM,
+                            String.valueOf(pageSize));
+            if (token != null) {
+                builder.appendQueryParameter(PAGE_TOKEN_PARAM, token);
+            }
+            return builder.build();
+        }
+
+        /**
+         * A page of the items of all the starred and not muted channels,
+         * newest first.
+         *
+         * @param token opaque token of the previous page, null for the first
+         *              page
+         */
+        public static final Uri timeline(String token, int pageSize,
+                                         boolean unreadOnly) {
+            Uri.Builder builder = Uri
+                    .parse("content://" + Provider.AUTHORITY
+                            + "/items/timeline")
+                    .buildUpon()
+                    .appendQueryParameter(PAGE_SIZE_PARAM,
+                            String.valueOf(pageSize));
+            if (token != null) {
+                builder.appendQueryParameter(PAGE_TOKEN_PARAM, token);
+            }
+            if (unreadOnly) {
+                builder.appendQueryParameter(UNREAD_ONLY_PARAM, "true");
+            }
+            return builder.build();
+        }
+
     }
 }
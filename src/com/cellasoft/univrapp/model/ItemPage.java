@@ -0,0 +1,24 @@
+package com.cellasoft.univrapp.model;
+
+import java.util.List;
+
+/**
+ * A page of items and the token to load the one after it.
+ */
+public class ItemPage {
+
+    public final List<Item> items;
+    /**
+     * Null when this is the last page.
+     */
+    public final String nextToken;
+
+    public ItemPage(List<Item> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
@@ -0,0 +1,166 @@
+package com.cellasoft.univrapp.provider;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.Build;
+import com.cellasoft.univrapp.model.Channel.Channels;
+import com.cellasoft.univrapp.model.Image.Images;
+import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.model.Lecturer.Lecturers;
+import com.cellasoft.univrapp.utils.UIUtils;
+
+/**
+ * In-process shortcut for the hot checks and single-row updates of
+ * ContentManager: they run on compiled statements kept for the life of the
+ * process instead of going through the ContentResolver, the UriMatcher and
+ * a cursor. The {@link Provider} stays the surface for other apps and for
+ * the observers: the updates are notified through it, so they are
+ * coalesced by its notification scopes as well.
+ * <p/>
+ * A SQLiteStatement is not thread-safe, so each one is used holding its own
+ * lock.
+ */
+public final class Dao {
+    private static Dao instance;
+
+    private final SQLiteDatabase db;
+    private final ContentResolver resolver;
+
+    private final SQLiteStatement existItem;
+    private final SQLiteStatement existChannel;
+    private final SQLiteStatement existSubscription;
+    private final SQLiteStatement existLecturer;
+    private final SQLiteStatement existImage;
+    private final SQLiteStatement countUnreadItems;
+    private final SQLiteStatement updateItemRead;
+    private final SQLiteStatement updateChannelStarred;
+    private final SQLiteStatement updateChannelMute;
+
+    private Dao(Context context) {
+        db = DatabaseHelper.getInstance(context).getWritableDatabase();
+        resolver = context.getContentResolver();
+
+        existItem = compileExists(DatabaseHelper.ITEMS_TABLE_NAME, Items.LINK);
+        existChannel = compileExists(DatabaseHelper.CHANNELS_TABLE_NAME,
+                Channels.URL);
+        existSubscription = compileExists(DatabaseHelper.CHANNELS_TABLE_NAME,
+                Channels.LECTURER_ID);
+        existLecturer = compileExists(DatabaseHelper.LECTURERS_TABLE_NAME,
+                Lecturers.ID);
+        existImage = compileExists(DatabaseHelper.IMAGES_TABLE_NAME,
+                Images.URL);
+        countUnreadItems = db.compileStatement("SELECT IFNULL(SUM("
+                + Channels.UNREAD_COUNT + "), 0) FROM "
+                + DatabaseHelper.CHANNELS_TABLE_NAME);
+        updateItemRead = compileUpdate(DatabaseHelper.ITEMS_TABLE_NAME,
+                Items.READ);
+        updateChannelStarred = compileUpdate(
+                DatabaseHelper.CHANNELS_TABLE_NAME, Channels.STARRED);
+        updateChannelMute = compileUpdate(DatabaseHelper.CHANNELS_TABLE_NAME,
+                Channels.MUTE);
+    }
+
+    public static synchronized Dao getInstance(Context context) {
+        if (instance == null) {
+            instance = new Dao(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public boolean existItem(String link) {
+        return link != null && queryForBoolean(existItem, link);
+    }
+
+    public boolean existChannel(String url) {
+        return url != null && queryForBoolean(existChannel, url);
+    }
+
+    public boolean existSubscription(int lecturerId) {
+        return queryForBoolean(existSubscription, String.valueOf(lecturerId));
+    }
+
+    public boolean existLecturer(int id) {
+        return queryForBoolean(existLecturer, String.valueOf(id));
+    }
+
+    public boolean existImage(String url) {
+        return url != null && queryForBoolean(existImage, url);
+    }
+
+    public int countUnreadItems() {
+        synchronized (countUnreadItems) {
+            return (int) countUnreadItems.simpleQueryForLong();
+        }
+    }
+
+    public void updateItemRead(int id, int read) {
+        update(updateItemRead, DatabaseHelper.ITEMS_TABLE_NAME,
+                Items.CONTENT_URI, Items.READ, read, id);
+    }
+
+    public void updateChannelStarred(int id, boolean starred) {
+        update(updateChannelStarred, DatabaseHelper.CHANNELS_TABLE_NAME,
+                Channels.CONTENT_URI, Channels.STARRED, starred ? 1 : 0, id);
+    }
+
+    public void updateChannelMute(int id, boolean mute) {
+        update(updateChannelMute, DatabaseHelper.CHANNELS_TABLE_NAME,
+                Channels.CONTENT_URI, Channels.MUTE, mute ? 1 : 0, id);
+    }
+
+    private SQLiteStatement compileExists(String table, String column) {
+        return db.compileStatement("SELECT EXISTS (SELECT 1 FROM " + table
+                + " WHERE " + column + " = ?)");
+    }
+
+    private SQLiteStatement compileUpdate(String table, String column) {
+        return db.compileStatement("UPDATE " + table + " SET " + column
+                + " = ? WHERE " + Provider.WHERE_ID);
+    }
+
+    private static boolean queryForBoolean(SQLiteStatement statement,
+                                           String arg) {
+        synchronized (statement) {
+            statement.bindString(1, arg);
+            try {
+                return statement.simpleQueryForLong() != 0;
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+
+    /**
+     * Runs a single-row update. executeUpdateDelete() needs Honeycomb, older
+     * devices use the update of SQLiteDatabase.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void update(SQLiteStatement statement, String table, Uri uri,
+                        String column, long value, int id) {
+        int count;
+        if (UIUtils.hasHoneycomb()) {
+            synchronized (statement) {
+                statement.bindLong(1, value);
+                statement.bindLong(2, id);
+                try {
+                    count = statement.executeUpdateDelete();
+                } finally {
+                    statement.clearBindings();
+                }
+            }
+        } else {
+            ContentValues values = new ContentValues(1);
+            values.put(column, value);
+            count = db.update(table, values,
+                    Provider.WHERE_ID, new String[]{String.valueOf(id)});
+        }
+        if (count > 0) {
+            Provider.notifyChange(resolver, uri);
+        }
+    }
+}
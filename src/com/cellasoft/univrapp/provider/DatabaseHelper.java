@@ -1,28 +1,54 @@
 package com.cellasoft.univrapp.provider;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 import android.util.Log;
+import com.cellasoft.univrapp.criteria.ItemQuery;
 import com.cellasoft.univrapp.model.Channel.Channels;
 import com.cellasoft.univrapp.model.Image.Images;
+import com.cellasoft.univrapp.model.Item;
 import com.cellasoft.univrapp.model.Item.Items;
 import com.cellasoft.univrapp.model.Lecturer.Lecturers;
+import com.cellasoft.univrapp.utils.UIUtils;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String TAG = DatabaseHelper.class.getName();
 
     public static final String DATABASE_NAME = "univrapp.db";
-    public static final int DATABASE_VERSION = 2;
+    public static final int DATABASE_VERSION = 11;
     public static final String CHANNELS_TABLE_NAME = "channels";
     public static final String ITEMS_TABLE_NAME = "items";
     public static final String LECTURERS_TABLE_NAME = "lecturers";
     public static final String IMAGES_TABLE_NAME = "images";
+    public static final String ITEMS_FTS_TABLE_NAME = "items_fts";
+    public static final String ITEM_BODIES_TABLE_NAME = "item_bodies";
+    /**
+     * Key of {@link #ITEM_BODIES_TABLE_NAME}, the ID of the item.
+     */
+    public static final String ITEM_BODIES_ITEM_ID = "ITEM_ID";
 
-    DatabaseHelper(Context context) {
+    private static DatabaseHelper instance;
+
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    /**
+     * The provider and the maintenance tasks share one helper, and so one
+     * connection pool and one set of locks.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE " + CHANNELS_TABLE_NAME + " (" + Channels.ID
@@ -31,14 +57,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + Channels.URL + " VARCHAR(255)," + Channels.DESCRIPTION
                 + " VARCHAR(255)," + Channels.UPDATE_TIME + " BIGINT,"
                 + Channels.IMAGE_URL + " VARCHAR(255)," + Channels.MUTE
-                + " INTEGER," + Channels.STARRED + " INTEGER );");
+                + " INTEGER," + Channels.STARRED + " INTEGER,"
+                + Channels.UNREAD_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + Channels.ETAG + " VARCHAR(255)," + Channels.LAST_MODIFIED
+                + " VARCHAR(64) );");
 
-        db.execSQL("CREATE TABLE " + ITEMS_TABLE_NAME + " (" + Items.ID
-                + " INTEGER PRIMARY KEY AUTOINCREMENT," + Items.TITLE
-                + " VARCHAR(255)," + Items.DESCRIPTION + " LONGTEXT,"
-                + Items.PUB_DATE + " INTEGER," + Items.UPDATE_TIME + " BIGINT,"
-                + Items.LINK + " VARCHAR(255)," + Items.READ + " INTEGER,"
-                + Items.CHANNEL_ID + " INTEGER );");
+        createItemsTable(db, ITEMS_TABLE_NAME);
+        createBodiesTable(db);
 
         db.execSQL("CREATE TABLE " + LECTURERS_TABLE_NAME + " (" + Lecturers.ID
                 + " INTEGER PRIMARY KEY," + Lecturers.KEY + " INTEGER,"
@@ -54,11 +79,225 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + " VARCHAR(255)," + Images.RETRIES + " INTEGER,"
                 + Images.UPDATE_TIME + " BIGINT," + Images.STATUS
                 + " INTEGER );");
+
+        createIndexes(db);
+        createUnreadTriggers(db);
+        createSearchTable(db);
+        createItemTriggers(db);
+        createUnreadIndex(db);
+        createTimelineIndex(db);
+    }
+
+    /**
+     * Since version 7 the items table holds only the narrow columns read by
+     * the lists, the counts and the retention rules: the descriptions are in
+     * {@link #ITEM_BODIES_TABLE_NAME}.
+     */
+    private void createItemsTable(SQLiteDatabase db, String name) {
+        db.execSQL("CREATE TABLE " + name + " (" + Items.ID
+                + " INTEGER PRIMARY KEY AUTOINCREMENT," + Items.TITLE
+                + " VARCHAR(255)," + Items.SUMMARY + " TEXT,"
+                + Items.PUB_DATE + " INTEGER," + Items.UPDATE_TIME + " BIGINT,"
+                + Items.LINK + " VARCHAR(255)," + Items.READ + " INTEGER,"
+                + Items.CHANNEL_ID + " INTEGER );");
+    }
+
+    private void createBodiesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + ITEM_BODIES_TABLE_NAME + " ("
+                + ITEM_BODIES_ITEM_ID + " INTEGER PRIMARY KEY,"
+                + Items.DESCRIPTION + " LONGTEXT );");
+    }
+
+    /**
+     * Indexes added in version 3. The items index follows the
+     * "UPDATE_TIME DESC, PUB_DATE DESC, ID ASC" order used by every item
+     * list, so a page of a channel is a single index range scan.
+     */
+    private void createIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS items_channel_idx ON "
+                + ITEMS_TABLE_NAME + " (" + Items.CHANNEL_ID + ", "
+                + Items.UPDATE_TIME + " DESC, " + Items.PUB_DATE + " DESC, "
+                + Items.ID + ");");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS items_link_idx ON "
+                + ITEMS_TABLE_NAME + " (" + Items.LINK + ");");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS channels_url_idx ON "
+                + CHANNELS_TABLE_NAME + " (" + Channels.URL + ");");
+        db.execSQL("CREATE INDEX IF NOT EXISTS channels_lecturer_idx ON "
+                + CHANNELS_TABLE_NAME + " (" + Channels.LECTURER_ID + ");");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS images_url_idx ON "
+                + IMAGES_TABLE_NAME + " (" + Images.URL + ");");
+        db.execSQL("CREATE INDEX IF NOT EXISTS images_status_idx ON "
+                + IMAGES_TABLE_NAME + " (" + Images.STATUS + ", "
+                + Images.UPDATE_TIME + ");");
+    }
+
+    /**
+     * Partial index of the unread items, added in version 9: the unread
+     * filters of {@link ItemQuery} read only the unread rows of the channel.
+     * Partial indexes need SQLite 3.8 (Lollipop); before, the same queries
+     * filter the range of items_channel_idx.
+     */
+    private void createUnreadIndex(SQLiteDatabase db) {
+        if (!hasPartialIndexes(db)) {
+            return;
+        }
+        db.execSQL("CREATE INDEX IF NOT EXISTS items_unread_idx ON "
+                + ITEMS_TABLE_NAME + " (" + Items.CHANNEL_ID + ", "
+                + Items.UPDATE_TIME + " DESC, " + Items.PUB_DATE + " DESC, "
+                + Items.ID + ") WHERE " + ItemQuery.UNREAD_SELECTION + ";");
+    }
+
+    /**
+     * Index added in version 10, in the order of the item lists across all
+     * the channels: a page of the timeline reads the newest items until it
+     * has enough of the followed channels, without sorting the table.
+     */
+    private void createTimelineIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS items_timeline_idx ON "
+                + ITEMS_TABLE_NAME + " (" + Items.UPDATE_TIME + " DESC, "
+                + Items.PUB_DATE + " DESC, " + Items.ID + ");");
+    }
+
+    private static boolean hasPartialIndexes(SQLiteDatabase db) {
+        String[] version = DatabaseUtils.stringForQuery(db,
+                "SELECT sqlite_version()", null).split("\\.");
+        int major = Integer.parseInt(version[0]);
+        return major > 3
+                || (major == 3 && Integer.parseInt(version[1]) >= 8);
+    }
+
+    /**
+     * Triggers added in version 4: they keep channels.UNREAD_COUNT equal to
+     * the number of unread items of the channel, so the unread counts are
+     * read from the channel rows instead of counting the items table.
+     */
+    private void createUnreadTriggers(SQLiteDatabase db) {
+        final String isNewUnread = "NEW." + Items.READ + " IN (" + Item.UNREAD
+                + ", " + Item.KEPT_UNREAD + ")";
+        final String isOldUnread = "OLD." + Items.READ + " IN (" + Item.UNREAD
+                + ", " + Item.KEPT_UNREAD + ")";
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_unread_insert AFTER INSERT ON "
+                + ITEMS_TABLE_NAME + " WHEN " + isNewUnread + " BEGIN UPDATE "
+                + CHANNELS_TABLE_NAME + " SET " + Channels.UNREAD_COUNT + " = "
+                + Channels.UNREAD_COUNT + " + 1 WHERE " + Channels.ID
+                + " = NEW." + Items.CHANNEL_ID + "; END;");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_unread_delete AFTER DELETE ON "
+                + ITEMS_TABLE_NAME + " WHEN " + isOldUnread + " BEGIN UPDATE "
+                + CHANNELS_TABLE_NAME + " SET " + Channels.UNREAD_COUNT + " = "
+                + Channels.UNREAD_COUNT + " - 1 WHERE " + Channels.ID
+                + " = OLD." + Items.CHANNEL_ID + "; END;");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_unread_update AFTER UPDATE OF "
+                + Items.READ + ", " + Items.CHANNEL_ID + " ON "
+                + ITEMS_TABLE_NAME + " BEGIN UPDATE " + CHANNELS_TABLE_NAME
+                + " SET " + Channels.UNREAD_COUNT + " = "
+                + Channels.UNREAD_COUNT + " - 1 WHERE " + Channels.ID
+                + " = OLD." + Items.CHANNEL_ID + " AND " + isOldUnread
+                + "; UPDATE " + CHANNELS_TABLE_NAME + " SET "
+                + Channels.UNREAD_COUNT + " = " + Channels.UNREAD_COUNT
+                + " + 1 WHERE " + Channels.ID + " = NEW." + Items.CHANNEL_ID
+                + " AND " + isNewUnread + "; END;");
+    }
+
+    /**
+     * Full-text table added in version 5. It mirrors the title and the
+     * description of the items, with docid equal to the item ID. FTS4 is
+     * used where available, FTS3 before Honeycomb.
+     */
+    private void createSearchTable(SQLiteDatabase db) {
+        String module = UIUtils.hasHoneycomb() ? "fts4" : "fts3";
+        db.execSQL("CREATE VIRTUAL TABLE " + ITEMS_FTS_TABLE_NAME + " USING "
+                + module + " (" + Items.TITLE + ", " + Items.DESCRIPTION
+                + ");");
+    }
+
+    /**
+     * Triggers of version 7: they keep the titles of the full-text table in
+     * sync with the items, and delete the body of a deleted item. Since
+     * version 8 the bodies can be compressed, so the provider writes the
+     * descriptions of the full-text table itself.
+     */
+    private void createItemTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_fts_insert AFTER INSERT ON "
+                + ITEMS_TABLE_NAME + " BEGIN INSERT INTO "
+                + ITEMS_FTS_TABLE_NAME + " (docid, " + Items.TITLE
+                + ") VALUES (NEW." + Items.ID + ", NEW." + Items.TITLE
+                + "); END;");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_fts_update AFTER UPDATE OF "
+                + Items.TITLE + " ON " + ITEMS_TABLE_NAME + " BEGIN UPDATE "
+                + ITEMS_FTS_TABLE_NAME + " SET " + Items.TITLE + " = NEW."
+                + Items.TITLE + " WHERE docid = NEW." + Items.ID + "; END;");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS items_delete AFTER DELETE ON "
+                + ITEMS_TABLE_NAME + " BEGIN DELETE FROM "
+                + ITEMS_FTS_TABLE_NAME + " WHERE docid = OLD." + Items.ID
+                + "; DELETE FROM " + ITEM_BODIES_TABLE_NAME + " WHERE "
+                + ITEM_BODIES_ITEM_ID + " = OLD." + Items.ID + "; END;");
+    }
+
+    /**
+     * Moves the descriptions to {@link #ITEM_BODIES_TABLE_NAME} and rebuilds
+     * the items table without them: SQLite cannot drop a column. Dropping the
+     * old table drops its indexes and triggers too, so they are created
+     * again; the full-text table already holds the descriptions.
+     */
+    private void moveDescriptions(SQLiteDatabase db) {
+        final String columns = Items.ID + ", " + Items.TITLE + ", "
+                + Items.SUMMARY + ", " + Items.PUB_DATE + ", "
+                + Items.UPDATE_TIME + ", " + Items.LINK + ", " + Items.READ
+                + ", " + Items.CHANNEL_ID;
+        final String newTable = ITEMS_TABLE_NAME + "_new";
+
+        createBodiesTable(db);
+        db.execSQL("INSERT INTO " + ITEM_BODIES_TABLE_NAME + " ("
+                + ITEM_BODIES_ITEM_ID + ", " + Items.DESCRIPTION + ") SELECT "
+                + Items.ID + ", " + Items.DESCRIPTION + " FROM "
+                + ITEMS_TABLE_NAME + " WHERE " + Items.DESCRIPTION
+                + " IS NOT NULL;");
+        createItemsTable(db, newTable);
+        db.execSQL("INSERT INTO " + newTable + " (" + columns + ") SELECT "
+                + columns + " FROM " + ITEMS_TABLE_NAME + ";");
+        db.execSQL("DROP TABLE " + ITEMS_TABLE_NAME + ";");
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO "
+                + ITEMS_TABLE_NAME + ";");
+        createIndexes(db);
+        createUnreadTriggers(db);
+        createItemTriggers(db);
+    }
+
+    /**
+     * Removes the rows that would break the unique indexes of version 3,
+     * keeping the oldest row of every duplicated link/url. Items of a
+     * duplicated channel are moved to the channel that is kept.
+     */
+    private void removeDuplicates(SQLiteDatabase db) {
+        db.execSQL("UPDATE " + ITEMS_TABLE_NAME + " SET " + Items.CHANNEL_ID
+                + " = (SELECT MIN(c2." + Channels.ID + ") FROM "
+                + CHANNELS_TABLE_NAME + " c1, " + CHANNELS_TABLE_NAME
+                + " c2 WHERE c1." + Channels.ID + " = " + ITEMS_TABLE_NAME
+                + "." + Items.CHANNEL_ID + " AND c2." + Channels.URL
+                + " = c1." + Channels.URL + ") WHERE " + Items.CHANNEL_ID
+                + " IN (SELECT " + Channels.ID + " FROM "
+                + CHANNELS_TABLE_NAME + " WHERE " + Channels.URL
+                + " IS NOT NULL AND " + Channels.ID
+                + " NOT IN (SELECT MIN(" + Channels.ID + ") FROM "
+                + CHANNELS_TABLE_NAME + " GROUP BY " + Channels.URL + "));");
+        db.execSQL("DELETE FROM " + CHANNELS_TABLE_NAME + " WHERE "
+                + Channels.URL + " IS NOT NULL AND " + Channels.ID
+                + " NOT IN (SELECT MIN(" + Channels.ID + ") FROM "
+                + CHANNELS_TABLE_NAME + " GROUP BY " + Channels.URL + ");");
+        db.execSQL("DELETE FROM " + ITEMS_TABLE_NAME + " WHERE " + Items.LINK
+                + " IS NOT NULL AND " + Items.ID + " NOT IN (SELECT MIN("
+                + Items.ID + ") FROM " + ITEMS_TABLE_NAME + " GROUP BY "
+                + Items.LINK + ");");
+        db.execSQL("DELETE FROM " + IMAGES_TABLE_NAME + " WHERE " + Images.URL
+                + " IS NOT NULL AND " + Images.ID + " NOT IN (SELECT MIN("
+                + Images.ID + ") FROM " + IMAGES_TABLE_NAME + " GROUP BY "
+                + Images.URL + ");");
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion == 1 && newVersion == 2) {
+        if (oldVersion < 2) {
             Log.i(TAG, "Database version 1 upgrade to 2 : Add MUTE column");
             final String ALTER_TBL = "ALTER TABLE " + CHANNELS_TABLE_NAME
                     + " ADD COLUMN MUTE INTEGER;";
@@ -66,12 +305,115 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         }
 
-        if (oldVersion == 2 && newVersion == 3) {
+        if (oldVersion < 3) {
+            Log.i(TAG, "Database version 2 upgrade to 3 : Add indexes");
+            removeDuplicates(db);
+            createIndexes(db);
+        }
+
+        if (oldVersion < 4) {
+            Log.i(TAG, "Database version 3 upgrade to 4 : Add UNREAD_COUNT column");
+            db.execSQL("ALTER TABLE " + CHANNELS_TABLE_NAME + " ADD COLUMN "
+                    + Channels.UNREAD_COUNT + " INTEGER NOT NULL DEFAULT 0;");
+            db.execSQL("UPDATE " + CHANNELS_TABLE_NAME + " SET "
+                    + Channels.UNREAD_COUNT + " = (SELECT COUNT(*) FROM "
+                    + ITEMS_TABLE_NAME + " WHERE " + ITEMS_TABLE_NAME + "."
+                    + Items.CHANNEL_ID + " = " + CHANNELS_TABLE_NAME + "."
+                    + Channels.ID + " AND " + ITEMS_TABLE_NAME + "."
+                    + Items.READ + " IN (" + Item.UNREAD + ", "
+                    + Item.KEPT_UNREAD + "));");
+            createUnreadTriggers(db);
+        }
+
+        if (oldVersion < 5) {
+            Log.i(TAG, "Database version 4 upgrade to 5 : Add full-text search");
+            createSearchTable(db);
+            db.execSQL("INSERT INTO " + ITEMS_FTS_TABLE_NAME + " (docid, "
+                    + Items.TITLE + ", " + Items.DESCRIPTION + ") SELECT "
+                    + Items.ID + ", " + Items.TITLE + ", " + Items.DESCRIPTION
+                    + " FROM " + ITEMS_TABLE_NAME + ";");
+            // the triggers are created with the bodies table, in version 7
+        }
+
+        if (oldVersion < 6) {
+            // the summaries of the items already stored are rendered when
+            // they are first shown
+            Log.i(TAG, "Database version 5 upgrade to 6 : Add SUMMARY column");
+            db.execSQL("ALTER TABLE " + ITEMS_TABLE_NAME + " ADD COLUMN "
+                    + Items.SUMMARY + " TEXT;");
+        }
+
+        if (oldVersion < 7) {
+            Log.i(TAG, "Database version 6 upgrade to 7 : Move descriptions to "
+                    + ITEM_BODIES_TABLE_NAME);
+            moveDescriptions(db);
+        }
 
+        if (oldVersion < 8) {
+            // the stored descriptions are compressed in background by
+            // Retention, after the next synchronization
+            Log.i(TAG, "Database version 7 upgrade to 8 : Compressed descriptions");
+            db.execSQL("DROP TRIGGER IF EXISTS item_bodies_fts_insert;");
+            db.execSQL("DROP TRIGGER IF EXISTS item_bodies_fts_update;");
+        }
+
+        if (oldVersion < 9) {
+            Log.i(TAG, "Database version 8 upgrade to 9 : Add unread index");
+            createUnreadIndex(db);
+        }
+
+        if (oldVersion < 10) {
+            Log.i(TAG, "Database version 9 upgrade to 10 : Add timeline index");
+            createTimelineIndex(db);
+        }
+
+        if (oldVersion < 11) {
+            Log.i(TAG, "Database version 10 upgrade to 11 : Add HTTP validators");
+            db.execSQL("ALTER TABLE " + CHANNELS_TABLE_NAME + " ADD COLUMN "
+                    + Channels.ETAG + " VARCHAR(255);");
+            db.execSQL("ALTER TABLE " + CHANNELS_TABLE_NAME + " ADD COLUMN "
+                    + Channels.LAST_MODIFIED + " VARCHAR(64);");
         }
     }
 
+    /**
+     * Write-ahead logging lets the UI read while the synchronization thread
+     * holds a write transaction: readers use their own connections of the
+     * pool and never wait for the writer.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.enableWriteAheadLogging();
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
     @Override
     public void onOpen(SQLiteDatabase db) {
+        if (db.isReadOnly())
+            return;
+
+        if (UIUtils.hasHoneycomb() && !UIUtils.hasJellyBean()) {
+            // onConfigure is not called before Jelly Bean
+            db.enableWriteAheadLogging();
+        }
+
+        // With WAL, NORMAL syncs only at checkpoints: a power loss can drop
+        // the last synchronized items, which are downloaded again by the next
+        // sync, but never corrupts the database. Without WAL it still avoids
+        // an fsync for every journal write.
+        execPragma(db, "synchronous=NORMAL");
+    }
+
+    /**
+     * PRAGMAs run through rawQuery only when the cursor is stepped.
+     */
+    static void execPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = db.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 }
@@ -0,0 +1,61 @@
+package com.cellasoft.univrapp.provider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the time spent by the {@link Provider} waiting for the
+ * database. Writes count the time needed to open a transaction, which is
+ * the lock wait. Reads are counted in debug builds only: the time needed to
+ * run a query and fill its first window, where a reader blocks when a
+ * writer holds the database, so an upper bound of the lock wait.
+ */
+public final class DatabaseStats {
+
+    private static final AtomicLong readWaitNanos = new AtomicLong();
+    private static final AtomicLong reads = new AtomicLong();
+    private static final AtomicLong writeWaitNanos = new AtomicLong();
+    private static final AtomicLong writes = new AtomicLong();
+
+    private DatabaseStats() {
+    }
+
+    static void addReadWait(long nanos) {
+        readWaitNanos.addAndGet(nanos);
+        reads.incrementAndGet();
+    }
+
+    static void addWriteWait(long nanos) {
+        writeWaitNanos.addAndGet(nanos);
+        writes.incrementAndGet();
+    }
+
+    public static long getReadWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(readWaitNanos.get());
+    }
+
+    public static long getReads() {
+        return reads.get();
+    }
+
+    public static long getWriteWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(writeWaitNanos.get());
+    }
+
+    public static long getWrites() {
+        return writes.get();
+    }
+
+    public static void reset() {
+        readWaitNanos.set(0);
+        reads.set(0);
+        writeWaitNanos.set(0);
+        writes.set(0);
+    }
+
+    public static String dump() {
+        return "reads=" + getReads() + " readWait=" + getReadWaitMillis()
+                + "ms writes=" + getWrites() + " writeWait="
+                + getWriteWaitMillis() + "ms";
+    }
+}
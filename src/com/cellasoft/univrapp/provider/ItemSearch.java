@@ -0,0 +1,170 @@
+package com.cellasoft.univrapp.provider;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseArray;
+import com.cellasoft.univrapp.model.Item.Items;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Full-text search over the title and description of the items, backed by
+ * the {@link DatabaseHelper#ITEMS_FTS_TABLE_NAME} shadow table.
+ * <p/>
+ * matchinfo() and bm25() are not available on every supported SQLite
+ * version, so the matches are ranked here from offsets(): a hit in the title
+ * weighs more than a hit in the description, and newer items win ties.
+ */
+final class ItemSearch {
+
+    static final String[] COLUMNS = new String[]{Items.ID, Items.SNIPPET};
+
+    private static final int TITLE_COLUMN = 0;
+    private static final int TITLE_WEIGHT = 5;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // ids per snippet query, well below the SQL length limit
+    private static final int SNIPPET_BATCH = 200;
+
+    private static final String RANK_SQL = "SELECT docid, offsets("
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME + ") FROM "
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME + " WHERE "
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME + " MATCH ?";
+
+    private static final String SNIPPET_SQL = "SELECT docid, snippet("
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME
+            + ", '<b>', '</b>', '...') FROM "
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME + " WHERE "
+            + DatabaseHelper.ITEMS_FTS_TABLE_NAME + " MATCH ? AND docid IN (";
+
+    private ItemSearch() {
+    }
+
+    /**
+     * Ranks all the matches from their offsets, then builds the snippets of
+     * the first {@code limit} only.
+     *
+     * @return a cursor of {@link #COLUMNS}, best match first
+     */
+    static Cursor search(SQLiteDatabase db, String query, int limit) {
+        MatrixCursor result = new MatrixCursor(COLUMNS);
+        String match = toMatchExpression(query);
+        if (match == null || limit <= 0) {
+            return result;
+        }
+
+        // score in the high half, id in the low one: sorted ascending, the
+        // best match is last, and newer items win ties
+        long[] hits = new long[64];
+        int size = 0;
+        Cursor cursor = db.rawQuery(RANK_SQL, new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                if (size == hits.length) {
+                    long[] larger = new long[size * 2];
+                    System.arraycopy(hits, 0, larger, 0, size);
+                    hits = larger;
+                }
+                hits[size++] = ((long) score(cursor.getString(1)) << 32)
+                        | (cursor.getInt(0) & 0xffffffffL);
+            }
+        } finally {
+            cursor.close();
+        }
+        Arrays.sort(hits, 0, size);
+
+        int count = Math.min(limit, size);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) hits[size - 1 - i];
+        }
+
+        SparseArray<String> snippets = new SparseArray<String>(count);
+        for (int from = 0; from < count; from += SNIPPET_BATCH) {
+            loadSnippets(db, match, ids, from,
+                    Math.min(count, from + SNIPPET_BATCH), snippets);
+        }
+
+        for (int id : ids) {
+            result.addRow(new Object[]{id, snippets.get(id)});
+        }
+        return result;
+    }
+
+    private static void loadSnippets(SQLiteDatabase db, String match,
+                                     int[] ids, int from, int to, SparseArray<String> snippets) {
+        StringBuilder sql = new StringBuilder(SNIPPET_SQL);
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sql.append(',');
+            }
+            sql.append(ids[i]);
+        }
+        sql.append(')');
+
+        Cursor cursor = db.rawQuery(sql.toString(), new String[]{match});
+        try {
+            while (cursor.moveToNext()) {
+                snippets.put(cursor.getInt(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Turns what the user typed into a MATCH expression: every word becomes
+     * a prefix term and all of them must match. Operators and quotes typed by
+     * the user are dropped so they cannot make the expression invalid.
+     *
+     * @return null if the query has no words
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ITALIAN).split(
+                "[^\\p{L}\\p{Nd}]+")) {
+            if (word.length() == 0 || word.equals("and") || word.equals("or")
+                    || word.equals("not") || word.equals("near")) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(word).append('*');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    /**
+     * offsets() returns four integers for every matched term: the column, the
+     * term, the byte offset and the size of the match.
+     */
+    private static int score(String offsets) {
+        int score = 0;
+        int value = -1;
+        int field = 0;
+        for (int i = 0, length = offsets.length(); i <= length; i++) {
+            char c = i < length ? offsets.charAt(i) : ' ';
+            if (c != ' ') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                continue;
+            }
+            if (value < 0) {
+                continue;
+            }
+            // the first of every four integers is the column
+            if (field % 4 == 0) {
+                score += value == TITLE_COLUMN ? TITLE_WEIGHT
+                        : DESCRIPTION_WEIGHT;
+            }
+            field++;
+            value = -1;
+        }
+        return score;
+    }
+}
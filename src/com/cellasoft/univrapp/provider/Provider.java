@@ -1,24 +1,68 @@
 package com.cellasoft.univrapp.provider;
 
+import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Build;
+import com.cellasoft.univrapp.BuildConfig;
+import com.cellasoft.univrapp.criteria.ItemQuery;
+import com.cellasoft.univrapp.criteria.PageToken;
 import com.cellasoft.univrapp.model.Channel.Channels;
 import com.cellasoft.univrapp.model.Image.Images;
 import com.cellasoft.univrapp.model.Item.Items;
 import com.cellasoft.univrapp.model.Lecturer.Lecturers;
+import com.cellasoft.univrapp.utils.BodyCodec;
+import com.cellasoft.univrapp.utils.UIUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Provider extends ContentProvider {
     public static final String AUTHORITY = "com.cellasoft.univrapp.provider.provider";
     public static final String WHERE_ID = "ID=?";
+    /**
+     * The channel columns are renamed in a subquery, which SQLite flattens
+     * into a plain join, so the selections and orders written for the items
+     * table stay unambiguous. CROSS JOIN keeps the items in the outer loop:
+     * they are read in the order of the list, with its index, and the
+     * channel of every row is looked up by primary key.
+     */
+    private static final String ITEMS_WITH_CHANNEL_TABLES = DatabaseHelper.ITEMS_TABLE_NAME
+            + " CROSS JOIN (SELECT "
+            + channelColumns(Channels.ID, Channels.LECTURER_ID,
+            Channels.TITLE, Channels.URL, Channels.DESCRIPTION,
+            Channels.UPDATE_TIME, Channels.IMAGE_URL, Channels.MUTE,
+            Channels.STARRED, Channels.UNREAD_COUNT, Channels.ETAG,
+            Channels.LAST_MODIFIED) + ", "
+            + Channels.UNREAD_COUNT + " AS " + Items.CHANNEL_COLUMN_PREFIX
+            + Channels.UNREAD + " FROM " + DatabaseHelper.CHANNELS_TABLE_NAME
+            + ") ON " + Items.CHANNEL_ID + " = " + Items.CHANNEL_COLUMN_PREFIX
+            + Channels.ID;
+    /**
+     * Joined only by the queries that read the descriptions: the other item
+     * queries scan the narrow items table alone.
+     */
+    private static final String ITEM_BODIES_JOIN = " LEFT OUTER JOIN "
+            + DatabaseHelper.ITEM_BODIES_TABLE_NAME + " ON " + Items.ID + " = "
+            + DatabaseHelper.ITEM_BODIES_ITEM_ID;
     private static final UriMatcher URL_MATCHER;
     private static final int CHANNELS = 1;
     private static final int ITEMS = 2;
@@ -29,10 +73,25 @@ public class Provider extends ContentProvider {
     private static final int LECTURERS = 7;
     private static final int IMAGES = 8;
     private static final int IMAGES_LIMIT = 9;
+    private static final int ITEMS_PAGE = 10;
+    private static final int ITEMS_SEARCH = 11;
+    private static final int ITEMS_TIMELINE = 12;
     private static HashMap<String, String> channelsProjectionMap;
     private static HashMap<String, String> itemsProjectionMap;
+    private static HashMap<String, String> itemsWithChannelProjectionMap;
     private static HashMap<String, String> lecturerProjectionMap;
     private static HashMap<String, String> imagesProjectionMap;
+    /**
+     * Notification scope open on the current thread, see
+     * {@link #beginNotificationScope()}.
+     */
+    private static final ThreadLocal<NotificationScope> notificationScopes = new ThreadLocal<NotificationScope>();
+    /**
+     * Set while {@link #applyBatch(ArrayList)} runs on the current thread.
+     */
+    private static final ThreadLocal<Boolean> applyingBatch = new ThreadLocal<Boolean>();
+    private static final AtomicLong notificationsSaved = new AtomicLong();
+    private static final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<ChangeListener>();
     private DatabaseHelper dbHelper;
 
     @Override
@@ -60,7 +119,7 @@ public class Provider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
 
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return count;
     }
 
@@ -70,6 +129,9 @@ public class Provider extends ContentProvider {
             case CHANNELS:
                 return Channels.CONTENT_TYPE;
             case ITEMS:
+            case ITEMS_PAGE:
+            case ITEMS_SEARCH:
+            case ITEMS_TIMELINE:
                 return Items.CONTENT_TYPE;
             case LECTURERS:
                 return Lecturers.CONTENT_TYPE;
@@ -105,8 +167,24 @@ public class Provider extends ContentProvider {
                 contentUri = Channels.CONTENT_URI;
                 break;
             case ITEMS:
-                rowId = db.insert(DatabaseHelper.ITEMS_TABLE_NAME,
-                        Items.DESCRIPTION, values);
+                if (applyingBatch.get() != null) {
+                    // duplicated links are rejected by the unique index: skip
+                    // them, the caller finds id 0 in the result
+                    rowId = insertItem(db, values,
+                            SQLiteDatabase.CONFLICT_IGNORE);
+                    if (rowId == -1) {
+                        return ContentUris.withAppendedId(Items.CONTENT_URI, 0);
+                    }
+                } else {
+                    beginTransaction(db);
+                    try {
+                        rowId = insertItem(db, values,
+                                SQLiteDatabase.CONFLICT_NONE);
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                }
                 contentUri = Channels.CONTENT_URI;
                 break;
             case LECTURERS:
@@ -124,19 +202,324 @@ public class Provider extends ContentProvider {
         }
 
         if (rowId > 0 && contentUri != null) {
-            contentUri = ContentUris.withAppendedId(contentUri, rowId);
-            getContext().getContentResolver().notifyChange(contentUri, null);
-            return contentUri;
+            Uri rowUri = ContentUris.withAppendedId(contentUri, rowId);
+            // inside a scope notify the collection once instead of every row
+            notifyChange(notificationScopes.get() != null ? contentUri : rowUri);
+            return rowUri;
         }
         throw new SQLException("Failed to insert row into " + uri);
     }
 
     @Override
-    public boolean onCreate() {
-        dbHelper = new DatabaseHelper(getContext());
-        dbHelper.getWritableDatabase().rawQuery("PRAGMA synchronous=OFF", null);
-        dbHelper.close();
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        if (URL_MATCHER.match(uri) != ITEMS) {
+            return super.bulkInsert(uri, values);
+        }
+
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int count = 0;
+        beginTransaction(db);
+        try {
+            for (ContentValues value : values) {
+                if (insertItem(db, new ContentValues(value),
+                        SQLiteDatabase.CONFLICT_IGNORE) > 0) {
+                    count++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (count > 0) {
+            notifyChange(Channels.CONTENT_URI);
+        }
+        return count;
+    }
+
+    /**
+     * Inserts an item and, in the same transaction of the caller, its
+     * description into {@link DatabaseHelper#ITEM_BODIES_TABLE_NAME},
+     * compressed by {@link BodyCodec} when it is long, and into the
+     * full-text table.
+     *
+     * @param values the values of the item, the description is removed
+     * @return the ID of the item, -1 if it was not inserted
+     */
+    private static long insertItem(SQLiteDatabase db, ContentValues values,
+                                   int conflictAlgorithm) {
+        boolean hasDescription = values.containsKey(Items.DESCRIPTION);
+        String description = values.getAsString(Items.DESCRIPTION);
+        values.remove(Items.DESCRIPTION);
+
+        long rowId = db.insertWithOnConflict(DatabaseHelper.ITEMS_TABLE_NAME,
+                Items.TITLE, values, conflictAlgorithm);
+        if (rowId > 0 && hasDescription) {
+            ContentValues body = new ContentValues(2);
+            body.put(DatabaseHelper.ITEM_BODIES_ITEM_ID, rowId);
+            if (BodyCodec.shouldCompress(description)) {
+                body.put(Items.DESCRIPTION, BodyCodec.compress(description));
+            } else {
+                body.put(Items.DESCRIPTION, description);
+            }
+            db.insertWithOnConflict(DatabaseHelper.ITEM_BODIES_TABLE_NAME,
+                    null, body, SQLiteDatabase.CONFLICT_REPLACE);
+            db.execSQL("UPDATE " + DatabaseHelper.ITEMS_FTS_TABLE_NAME
+                    + " SET " + Items.DESCRIPTION + " = ? WHERE docid = ?",
+                    new Object[]{description, rowId});
+        }
+        return rowId;
+    }
+
+    /**
+     * Updates the items matched by the selection, writing a new description
+     * into {@link DatabaseHelper#ITEM_BODIES_TABLE_NAME}.
+     */
+    private static int updateItems(SQLiteDatabase db, ContentValues values,
+                                   String where, String[] whereArgs) {
+        if (!values.containsKey(Items.DESCRIPTION)) {
+            return db.update(DatabaseHelper.ITEMS_TABLE_NAME, values, where,
+                    whereArgs);
+        }
+
+        values = new ContentValues(values);
+        String description = values.getAsString(Items.DESCRIPTION);
+        values.remove(Items.DESCRIPTION);
+
+        String selectIds = "SELECT " + Items.ID + " FROM "
+                + DatabaseHelper.ITEMS_TABLE_NAME
+                + (where == null ? "" : " WHERE " + where);
+        Object[] bindArgs = new Object[whereArgs == null ? 1
+                : whereArgs.length + 1];
+        if (whereArgs != null) {
+            System.arraycopy(whereArgs, 0, bindArgs, 1, whereArgs.length);
+        }
+
+        int count = 0;
+        beginTransaction(db);
+        try {
+            bindArgs[0] = BodyCodec.encode(description);
+            db.execSQL("INSERT OR REPLACE INTO "
+                    + DatabaseHelper.ITEM_BODIES_TABLE_NAME + " ("
+                    + DatabaseHelper.ITEM_BODIES_ITEM_ID + ", "
+                    + Items.DESCRIPTION + ") SELECT " + Items.ID + ", ? FROM "
+                    + DatabaseHelper.ITEMS_TABLE_NAME
+                    + (where == null ? "" : " WHERE " + where), bindArgs);
+            bindArgs[0] = description;
+            db.execSQL("UPDATE " + DatabaseHelper.ITEMS_FTS_TABLE_NAME
+                    + " SET " + Items.DESCRIPTION + " = ? WHERE docid IN ("
+                    + selectIds + ")", bindArgs);
+            if (values.size() > 0) {
+                count = db.update(DatabaseHelper.ITEMS_TABLE_NAME, values,
+                        where, whereArgs);
+            } else {
+                count = (int) DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM ("
+                        + selectIds + ")", whereArgs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
+    /**
+     * Applies all the operations in a single transaction, inside a
+     * notification scope: every changed uri is notified once at the end.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(
+            ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        beginNotificationScope();
+        applyingBatch.set(Boolean.TRUE);
+        beginTransaction(db);
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+            return results;
+        } finally {
+            db.endTransaction();
+            applyingBatch.remove();
+            endNotificationScope(getContext().getContentResolver());
+        }
+    }
+
+    /**
+     * Opens a notification scope on the current thread. Until the matching
+     * {@link #endNotificationScope(ContentResolver)} the changes made by this
+     * thread through the provider are not notified: every changed uri is
+     * notified once when the outermost scope ends. Scopes can be nested.
+     * <p/>
+     * The provider runs in the process of the app, so its methods run on the
+     * thread of the ContentResolver call that opened the scope.
+     */
+    public static void beginNotificationScope() {
+        NotificationScope scope = notificationScopes.get();
+        if (scope == null) {
+            scope = new NotificationScope();
+            notificationScopes.set(scope);
+        }
+        scope.depth++;
+    }
+
+    /**
+     * Closes the scope opened by {@link #beginNotificationScope()}; always
+     * call it from a finally block.
+     */
+    public static void endNotificationScope(ContentResolver resolver) {
+        NotificationScope scope = notificationScopes.get();
+        if (scope == null) {
+            throw new IllegalStateException("No notification scope to end");
+        }
+        if (--scope.depth > 0) {
+            return;
+        }
+        notificationScopes.remove();
+        for (Uri uri : scope.changedUris) {
+            dispatchChange(resolver, uri);
+        }
+    }
 
+    /**
+     * Registers a listener called, in this process, with every uri notified
+     * by the provider, right after the ContentResolver observers. Inside a
+     * notification scope the listeners are also called right away, so a
+     * cache is never stale for the thread that wrote.
+     */
+    public static void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public static void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * @return the number of change notifications not sent because they were
+     * coalesced by a notification scope
+     */
+    public static long getNotificationsSaved() {
+        return notificationsSaved.get();
+    }
+
+    /**
+     * Opens an IMMEDIATE transaction where available, so readers are not
+     * locked out until the commit, and records how long it had to wait.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void beginTransaction(SQLiteDatabase db) {
+        long start = System.nanoTime();
+        if (UIUtils.hasHoneycomb()) {
+            db.beginTransactionNonExclusive();
+        } else {
+            db.beginTransaction();
+        }
+        DatabaseStats.addWriteWait(System.nanoTime() - start);
+    }
+
+    /**
+     * The items of the starred and not muted channels, read in time order
+     * with items_timeline_idx until the page is full.
+     */
+    private static ItemQuery timeline(Uri uri) {
+        ItemQuery.Builder builder = new ItemQuery.Builder().starredChannels()
+                .excludeMuted().byTime();
+        if (uri.getQueryParameter(Items.UNREAD_ONLY_PARAM) != null) {
+            builder.unreadOnly();
+        }
+        String token = uri.getQueryParameter(Items.PAGE_TOKEN_PARAM);
+        if (token != null) {
+            builder.olderThan(PageToken.decode(token));
+        }
+        return builder.build();
+    }
+
+    private Cursor search(Uri uri) {
+        String limit = uri.getQueryParameter(Items.PAGE_SIZE_PARAM);
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long start = System.nanoTime();
+        Cursor c = ItemSearch.search(db,
+                uri.getQueryParameter(Items.SEARCH_QUERY_PARAM),
+                limit == null ? Integer.MAX_VALUE : Integer.parseInt(limit));
+        if (BuildConfig.DEBUG) {
+            DatabaseStats.addReadWait(System.nanoTime() - start);
+        }
+
+        c.setNotificationUri(getContext().getContentResolver(), uri);
+        return c;
+    }
+
+    private static String channelColumns(String... columns) {
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(column).append(" AS ")
+                    .append(Items.CHANNEL_COLUMN_PREFIX).append(column);
+        }
+        return sb.toString();
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        if (second == null || second.length == 0) {
+            return first;
+        }
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private void notifyChange(Uri uri) {
+        notifyChange(getContext().getContentResolver(), uri);
+    }
+
+    /**
+     * Notifies a change made to the database. When a notification scope is
+     * open on the current thread only the change listeners are called now,
+     * and the change is recorded for the ContentResolver: the listeners are
+     * called again at the end of the scope, for the rows read by other
+     * threads before the commit.
+     */
+    static void notifyChange(ContentResolver resolver, Uri uri) {
+        NotificationScope scope = notificationScopes.get();
+        if (scope == null) {
+            dispatchChange(resolver, uri);
+            return;
+        }
+        notifyListeners(uri);
+        if (!scope.changedUris.add(uri)) {
+            notificationsSaved.incrementAndGet();
+        }
+    }
+
+    private static void dispatchChange(ContentResolver resolver, Uri uri) {
+        resolver.notifyChange(uri, null);
+        notifyListeners(uri);
+    }
+
+    private static void notifyListeners(Uri uri) {
+        for (ChangeListener listener : changeListeners) {
+            listener.onChange(uri);
+        }
+    }
+
+    public interface ChangeListener {
+        void onChange(Uri uri);
+    }
+
+    private static class NotificationScope {
+        final Set<Uri> changedUris = new LinkedHashSet<Uri>();
+        int depth;
+    }
+
+    @Override
+    public boolean onCreate() {
+        // the database is opened, and configured, on first use
+        dbHelper = DatabaseHelper.getInstance(getContext());
         return true;
     }
 
@@ -165,6 +548,34 @@ public class Provider extends ContentProvider {
                 limit = uri.getLastPathSegment() + ", "
                         + uri.getPathSegments().get(1);
                 break;
+            case ITEMS_PAGE:
+                qb.setTables(DatabaseHelper.ITEMS_TABLE_NAME);
+                qb.setProjectionMap(itemsProjectionMap);
+                String token = uri.getQueryParameter(Items.PAGE_TOKEN_PARAM);
+                if (token != null) {
+                    PageToken pageToken = PageToken.decode(token);
+                    selection = selection == null ? PageToken.OLDER_SELECTION
+                            : PageToken.OLDER_SELECTION + " AND (" + selection
+                            + ")";
+                    selectionArgs = concat(pageToken.getSelectionArgs(),
+                            selectionArgs);
+                }
+                sortOrder = PageToken.ORDER_BY;
+                limit = uri.getQueryParameter(Items.PAGE_SIZE_PARAM);
+                break;
+            case ITEMS_TIMELINE:
+                qb.setTables(DatabaseHelper.ITEMS_TABLE_NAME);
+                qb.setProjectionMap(itemsProjectionMap);
+                ItemQuery timeline = timeline(uri);
+                selection = selection == null ? timeline.getSelection()
+                        : timeline.getSelection() + " AND (" + selection + ")";
+                selectionArgs = concat(timeline.getSelectionArgs(),
+                        selectionArgs);
+                sortOrder = timeline.getOrderBy();
+                limit = uri.getQueryParameter(Items.PAGE_SIZE_PARAM);
+                break;
+            case ITEMS_SEARCH:
+                return search(uri);
             case IMAGES:
                 qb.setTables(DatabaseHelper.IMAGES_TABLE_NAME);
                 qb.setProjectionMap(imagesProjectionMap);
@@ -192,9 +603,27 @@ public class Provider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        if (DatabaseHelper.ITEMS_TABLE_NAME.equals(qb.getTables())) {
+            if (uri.getQueryParameter(Items.JOIN_CHANNEL_PARAM) != null) {
+                qb.setTables(ITEMS_WITH_CHANNEL_TABLES);
+                qb.setProjectionMap(itemsWithChannelProjectionMap);
+            }
+            if (projection == null
+                    || Arrays.asList(projection).contains(Items.DESCRIPTION)) {
+                qb.setTables(qb.getTables() + ITEM_BODIES_JOIN);
+            }
+        }
+
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        long start = System.nanoTime();
         Cursor c = qb.query(db, projection, selection, selectionArgs, group,
                 having, sortOrder, limit);
+        if (BuildConfig.DEBUG) {
+            // the statement runs when the first window is filled: forced
+            // here only to be timed, the other builds fill it lazily
+            c.getCount();
+            DatabaseStats.addReadWait(System.nanoTime() - start);
+        }
 
         c.setNotificationUri(getContext().getContentResolver(), uri);
         return c;
@@ -211,8 +640,7 @@ public class Provider extends ContentProvider {
                         where, whereArgs);
                 break;
             case ITEMS:
-                count = db.update(DatabaseHelper.ITEMS_TABLE_NAME, values, where,
-                        whereArgs);
+                count = updateItems(db, values, where, whereArgs);
                 break;
             case LECTURERS:
                 count = db.update(DatabaseHelper.LECTURERS_TABLE_NAME, values,
@@ -226,7 +654,7 @@ public class Provider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
 
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return count;
     }
 
@@ -243,6 +671,12 @@ public class Provider extends ContentProvider {
                 ITEMS_LIMIT_OFFSET);
         URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.ITEMS_TABLE_NAME
                 + "/unread", ITEMS_UNREAD_COUNT_OF_EACH_CHANNEL);
+        URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.ITEMS_TABLE_NAME
+                + "/page", ITEMS_PAGE);
+        URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.ITEMS_TABLE_NAME
+                + "/search", ITEMS_SEARCH);
+        URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.ITEMS_TABLE_NAME
+                + "/timeline", ITEMS_TIMELINE);
         URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.ITEMS_TABLE_NAME
                 + "/unread/all", ITEMS_UNREAD_COUNT_ALL_CHANNELS);
         URL_MATCHER.addURI(AUTHORITY, DatabaseHelper.IMAGES_TABLE_NAME, IMAGES);
@@ -259,16 +693,20 @@ public class Provider extends ContentProvider {
         channelsProjectionMap.put(Channels.STARRED, Channels.STARRED);
         channelsProjectionMap.put(Channels.MUTE, Channels.MUTE);
         channelsProjectionMap.put(Channels.IMAGE_URL, Channels.IMAGE_URL);
-        channelsProjectionMap.put(Channels.UNREAD, "(SELECT COUNT(*) FROM "
-                + DatabaseHelper.ITEMS_TABLE_NAME + " WHERE "
-                + DatabaseHelper.ITEMS_TABLE_NAME + ".CHANNEL_ID = "
-                + DatabaseHelper.CHANNELS_TABLE_NAME + ".ID AND "
-                + DatabaseHelper.ITEMS_TABLE_NAME + ".READ = 0) AS UNREAD");
+        channelsProjectionMap.put(Channels.UNREAD_COUNT, Channels.UNREAD_COUNT);
+        channelsProjectionMap.put(Channels.ETAG, Channels.ETAG);
+        channelsProjectionMap.put(Channels.LAST_MODIFIED,
+                Channels.LAST_MODIFIED);
+        channelsProjectionMap.put(Channels.UNREAD, Channels.UNREAD_COUNT
+                + " AS " + Channels.UNREAD);
+        channelsProjectionMap.put(Channels.TOTAL_UNREAD, "SUM("
+                + Channels.UNREAD_COUNT + ") AS " + Channels.TOTAL_UNREAD);
 
         itemsProjectionMap = new HashMap<String, String>();
         itemsProjectionMap.put(Items.ID, Items.ID);
         itemsProjectionMap.put(Items.TITLE, Items.TITLE);
         itemsProjectionMap.put(Items.DESCRIPTION, Items.DESCRIPTION);
+        itemsProjectionMap.put(Items.SUMMARY, Items.SUMMARY);
         itemsProjectionMap.put(Items.PUB_DATE, Items.PUB_DATE);
         itemsProjectionMap.put(Items.LINK, Items.LINK);
         itemsProjectionMap.put(Items.READ, Items.READ);
@@ -277,6 +715,15 @@ public class Provider extends ContentProvider {
         itemsProjectionMap.put(Items.CHANNEL_ID, Items.CHANNEL_ID);
         itemsProjectionMap.put(Items.UPDATE_TIME, Items.UPDATE_TIME);
 
+        itemsWithChannelProjectionMap = new HashMap<String, String>(
+                itemsProjectionMap);
+        for (String column : channelsProjectionMap.keySet()) {
+            if (!column.equals(Channels.TOTAL_UNREAD)) {
+                itemsWithChannelProjectionMap.put(Items.CHANNEL_COLUMN_PREFIX
+                        + column, Items.CHANNEL_COLUMN_PREFIX + column);
+            }
+        }
+
         lecturerProjectionMap = new HashMap<String, String>();
         lecturerProjectionMap.put(Lecturers.ID, Lecturers.ID);
         lecturerProjectionMap.put(Lecturers.KEY, Lecturers.KEY);
@@ -0,0 +1,328 @@
+package com.cellasoft.univrapp.provider;
+
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import com.cellasoft.univrapp.model.Channel.Channels;
+import com.cellasoft.univrapp.model.Image.Images;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.model.Item.Items;
+import com.cellasoft.univrapp.utils.BodyCodec;
+import com.cellasoft.univrapp.utils.ItemSummary;
+import com.cellasoft.univrapp.utils.UIUtils;
+
+import static com.cellasoft.univrapp.utils.LogUtils.LOGD;
+import static com.cellasoft.univrapp.utils.LogUtils.LOGE;
+import static com.cellasoft.univrapp.utils.LogUtils.makeLogTag;
+
+/**
+ * Keeps the database bounded. The rules run at the end of a synchronization:
+ * one indexed range DELETE per channel for the newest items kept, a single
+ * DELETE over the whole table for the others, and the pages freed by the
+ * deletes are given back to the file system with incremental vacuum.
+ * The long descriptions stored before version 8 are compressed here too,
+ * and the items stored before version 6 are given their summary.
+ */
+public final class Retention {
+    private static final String TAG = makeLogTag(Retention.class);
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    // free pages tolerated before an incremental vacuum runs
+    private static final int MAX_FREE_PAGES = 256;
+    // descriptions compressed per transaction
+    private static final int COMPRESSION_BATCH = 50;
+    // summaries rendered per transaction
+    private static final int SUMMARY_BATCH = 50;
+
+    private final SQLiteDatabase db;
+    private final ContentResolver resolver;
+
+    public Retention(Context context) {
+        this.db = DatabaseHelper.getInstance(context).getWritableDatabase();
+        this.resolver = context.getContentResolver();
+    }
+
+    /**
+     * @param keepItemsPerChannel newest items kept in every channel
+     * @param maxItemAge          items published longer than this many
+     *                            milliseconds ago are deleted, unless kept
+     *                            unread; 0 disables the rule
+     * @param keepImages          newest images kept
+     * @return the number of deleted rows
+     */
+    public int apply(int keepItemsPerChannel, long maxItemAge, int keepImages) {
+        int deletedItems = 0, deletedImages;
+        beginTransaction();
+        try {
+            deletedItems = deleteOldestItems(keepItemsPerChannel);
+            if (maxItemAge > 0) {
+                deletedItems += db.delete(DatabaseHelper.ITEMS_TABLE_NAME,
+                        Items.PUB_DATE + " < ? AND " + Items.READ + " <> "
+                                + Item.KEPT_UNREAD,
+                        new String[]{String.valueOf(System
+                                .currentTimeMillis() - maxItemAge)});
+            }
+            deletedImages = db.delete(DatabaseHelper.IMAGES_TABLE_NAME,
+                    Images.ID + " NOT IN (SELECT " + Images.ID + " FROM "
+                            + DatabaseHelper.IMAGES_TABLE_NAME + " ORDER BY "
+                            + Images.ID + " DESC LIMIT ?)",
+                    new String[]{String.valueOf(keepImages)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (deletedItems > 0) {
+            // the unread counts of the channels changed as well
+            Provider.notifyChange(resolver, Items.CONTENT_URI);
+            Provider.notifyChange(resolver, Channels.CONTENT_URI);
+        }
+        if (deletedImages > 0) {
+            Provider.notifyChange(resolver, Images.CONTENT_URI);
+        }
+        LOGD(TAG, "Deleted " + deletedItems + " items and " + deletedImages
+                + " images");
+
+        compressBodies();
+        addMissingSummaries();
+        vacuum();
+        return deletedItems + deletedImages;
+    }
+
+    /**
+     * Keeps the newest items of every channel, in the order of the item
+     * lists: the N-th item of the channel is found on items_channel_idx,
+     * and everything after it is deleted with one range delete on the same
+     * index. A correlated NOT IN would run its subquery for every item.
+     */
+    private int deleteOldestItems(int keepItemsPerChannel) {
+        if (keepItemsPerChannel <= 0) {
+            return db.delete(DatabaseHelper.ITEMS_TABLE_NAME, null, null);
+        }
+
+        int deleted = 0;
+        Cursor channels = db.rawQuery("SELECT " + Channels.ID + " FROM "
+                + DatabaseHelper.CHANNELS_TABLE_NAME, null);
+        try {
+            while (channels.moveToNext()) {
+                String channelId = channels.getString(0);
+                Cursor last = db.rawQuery("SELECT " + Items.ID + ", IFNULL("
+                        + Items.PUB_DATE + ", 0), IFNULL(" + Items.UPDATE_TIME
+                        + ", 0) FROM "
+                        + DatabaseHelper.ITEMS_TABLE_NAME + " WHERE "
+                        + Items.CHANNEL_ID + " = ? ORDER BY "
+                        + Items.UPDATE_TIME + " DESC, " + Items.PUB_DATE
+                        + " DESC, " + Items.ID + " ASC LIMIT 1 OFFSET ?",
+                        new String[]{channelId,
+                                String.valueOf(keepItemsPerChannel - 1)});
+                String id, pubDate, updateTime;
+                try {
+                    if (!last.moveToFirst()) {
+                        // no more items than kept
+                        continue;
+                    }
+                    id = last.getString(0);
+                    pubDate = last.getString(1);
+                    updateTime = last.getString(2);
+                } finally {
+                    last.close();
+                }
+
+                deleted += db.delete(DatabaseHelper.ITEMS_TABLE_NAME,
+                        Items.CHANNEL_ID + " = ? AND (" + Items.UPDATE_TIME
+                                + " < ? OR (" + Items.UPDATE_TIME + " = ? AND ("
+                                + Items.PUB_DATE + " < ? OR (" + Items.PUB_DATE
+                                + " = ? AND " + Items.ID + " > ?))))",
+                        new String[]{channelId, updateTime, updateTime,
+                                pubDate, pubDate, id});
+            }
+        } finally {
+            channels.close();
+        }
+        return deleted;
+    }
+
+    /**
+     * Compresses, in batches, the long descriptions still stored as text.
+     * They are deflated outside the transaction, which holds only the
+     * updates of the batch.
+     *
+     * @return the number of compressed descriptions
+     */
+    public int compressBodies() {
+        final String[] args = new String[]{
+                String.valueOf(BodyCodec.COMPRESSION_THRESHOLD),
+                String.valueOf(COMPRESSION_BATCH)};
+        int compressed = 0;
+        SQLiteStatement update = db.compileStatement("UPDATE "
+                + DatabaseHelper.ITEM_BODIES_TABLE_NAME + " SET "
+                + Items.DESCRIPTION + " = ? WHERE "
+                + DatabaseHelper.ITEM_BODIES_ITEM_ID + " = ?");
+        try {
+            int count;
+            do {
+                long[] ids = new long[COMPRESSION_BATCH];
+                byte[][] bodies = new byte[COMPRESSION_BATCH][];
+                count = 0;
+                Cursor cursor = db.rawQuery("SELECT "
+                        + DatabaseHelper.ITEM_BODIES_ITEM_ID + ", "
+                        + Items.DESCRIPTION + " FROM "
+                        + DatabaseHelper.ITEM_BODIES_TABLE_NAME
+                        + " WHERE typeof(" + Items.DESCRIPTION
+                        + ") = 'text' AND length(" + Items.DESCRIPTION
+                        + ") >= ? LIMIT ?", args);
+                try {
+                    while (cursor.moveToNext()) {
+                        ids[count] = cursor.getLong(0);
+                        bodies[count++] = BodyCodec.compress(cursor
+                                .getString(1));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (count == 0) {
+                    break;
+                }
+
+                beginTransaction();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        update.bindBlob(1, bodies[i]);
+                        update.bindLong(2, ids[i]);
+                        update.execute();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                compressed += count;
+            } while (count == COMPRESSION_BATCH);
+        } catch (SQLException e) {
+            // busy: the rest is compressed after the next synchronization
+            LOGE(TAG, "Compression failed: " + e.getMessage());
+        } finally {
+            update.close();
+        }
+
+        if (compressed > 0) {
+            LOGD(TAG, "Compressed " + compressed + " descriptions");
+        }
+        return compressed;
+    }
+
+    /**
+     * Renders, in batches, the summary of the items stored before the
+     * SUMMARY column, so the item lists no longer load their descriptions.
+     * An item without description gets an empty summary, not to be read
+     * again.
+     *
+     * @return the number of summaries added
+     */
+    public int addMissingSummaries() {
+        final String[] args = new String[]{String.valueOf(SUMMARY_BATCH)};
+        int added = 0;
+        SQLiteStatement update = db.compileStatement("UPDATE "
+                + DatabaseHelper.ITEMS_TABLE_NAME + " SET " + Items.SUMMARY
+                + " = ? WHERE " + Items.ID + " = ?");
+        try {
+            int count;
+            do {
+                long[] ids = new long[SUMMARY_BATCH];
+                String[] summaries = new String[SUMMARY_BATCH];
+                count = 0;
+                Cursor cursor = db.rawQuery("SELECT i." + Items.ID + ", b."
+                        + Items.DESCRIPTION + " FROM "
+                        + DatabaseHelper.ITEMS_TABLE_NAME + " i LEFT OUTER JOIN "
+                        + DatabaseHelper.ITEM_BODIES_TABLE_NAME + " b ON b."
+                        + DatabaseHelper.ITEM_BODIES_ITEM_ID + " = i."
+                        + Items.ID + " WHERE i." + Items.SUMMARY
+                        + " IS NULL LIMIT ?", args);
+                try {
+                    while (cursor.moveToNext()) {
+                        ids[count] = cursor.getLong(0);
+                        String summary = ItemSummary.render(BodyCodec.read(
+                                cursor, 1));
+                        summaries[count++] = summary == null ? "" : summary;
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (count == 0) {
+                    break;
+                }
+
+                beginTransaction();
+                try {
+                    for (int i = 0; i < count; i++) {
+                        update.bindString(1, summaries[i]);
+                        update.bindLong(2, ids[i]);
+                        update.execute();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                added += count;
+            } while (count == SUMMARY_BATCH);
+        } catch (SQLException e) {
+            // busy: the rest is rendered after the next synchronization
+            LOGE(TAG, "Summaries failed: " + e.getMessage());
+        } finally {
+            update.close();
+        }
+
+        if (added > 0) {
+            Provider.notifyChange(resolver, Items.CONTENT_URI);
+            LOGD(TAG, "Added " + added + " summaries");
+        }
+        return added;
+    }
+
+    /**
+     * Switches the database to incremental auto-vacuum the first time, which
+     * needs a full VACUUM, then frees the unused pages when there are enough
+     * of them. Must not run inside a transaction.
+     */
+    public void vacuum() {
+        try {
+            if (queryLong("PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+                LOGD(TAG, "Enabling incremental auto-vacuum");
+                DatabaseHelper.execPragma(db, "auto_vacuum=INCREMENTAL");
+                db.execSQL("VACUUM");
+                return;
+            }
+
+            long freePages = queryLong("PRAGMA freelist_count");
+            if (freePages > MAX_FREE_PAGES) {
+                LOGD(TAG, "Incremental vacuum of " + freePages + " pages");
+                DatabaseHelper.execPragma(db, "incremental_vacuum");
+            }
+        } catch (SQLException e) {
+            // busy: retried after the next synchronization
+            LOGE(TAG, "Vacuum failed: " + e.getMessage());
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void beginTransaction() {
+        if (UIUtils.hasHoneycomb()) {
+            db.beginTransactionNonExclusive();
+        } else {
+            db.beginTransaction();
+        }
+    }
+
+    private long queryLong(String sql) {
+        Cursor cursor = db.rawQuery(sql, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -8,19 +8,24 @@ import com.cellasoft.univrapp.model.Channel;
 import com.cellasoft.univrapp.model.Department;
 import com.cellasoft.univrapp.rss.RSSFeed;
 import com.cellasoft.univrapp.rss.RSSHandler.OnNewEntryCallback;
+import com.cellasoft.univrapp.utils.DecodingInputStream;
 import com.cellasoft.univrapp.utils.ErrorResponse;
 import com.cellasoft.univrapp.utils.HandlerException;
+import com.cellasoft.univrapp.utils.HttpStack;
 import com.cellasoft.univrapp.utils.JSONHandler;
 import com.cellasoft.univrapp.utils.StreamUtils;
 import com.cellasoft.univrapp.widget.ContactItemInterface;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Serializable;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.List;
 
 import static com.cellasoft.univrapp.utils.LogUtils.*;
@@ -60,55 +65,93 @@ public class UnivrReader implements Serializable {
 
     public RSSFeed fetchEntriesOfFeed(Channel channel, int maxItems,
                                       OnNewEntryCallback callback) throws IOException {
+        HttpGet request = newRequest(channel.url, "application/rss+xml");
+        if (channel.etag != null) {
+            request.setHeader("If-None-Match", channel.etag);
+        }
+        if (channel.lastModified != null) {
+            request.setHeader("If-Modified-Since", channel.lastModified);
+        }
 
-        StreamUtils.disableConnectionReuseIfNecessary();
-        URL url = new URL(channel.url);
-        HttpURLConnection urlConnection = (HttpURLConnection) url
-                .openConnection();
-        urlConnection.setRequestProperty("User-Agent", userAgent);
-        urlConnection.setRequestProperty("Content-Type", "application/rss+xml");
-        urlConnection.setDoOutput(true);
-
-        urlConnection.connect();
-        throwErrors(urlConnection);
+        HttpResponse response = HttpStack.execute(request);
+        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            LOGD(TAG, "Not modified: " + channel.url);
+            HttpStack.consume(response);
+            return RSSFeed.notModified();
+        }
+        throwErrors(request, response);
 
-        InputStream is = urlConnection.getInputStream();
-        return RSSFeed.parse(is, maxItems, callback);
+        // decoded while the parser reads it; releasing it gives the
+        // connection back to the pool
+        DecodingInputStream is = HttpStack.getContent(response);
+        RSSFeed feed = null;
+        try {
+            feed = RSSFeed.parse(is, maxItems, callback);
+            if (feed != null) {
+                feed.setTransfer(is.getWireBytes(), is.getDecodedBytes());
+                LOGD(TAG, channel.url + ": " + feed.getWireBytes()
+                        + " bytes received, " + feed.getDecodedBytes()
+                        + " parsed");
+            }
+        } finally {
+            // a parse stopped early leaves the rest of the feed unread
+            HttpStack.release(request, response, is, feed != null
+                    && feed.isComplete() && !feed.isStopped());
+        }
+        // saved with the channel, with the new items; a feed read only in
+        // part must be downloaded again, not answered 304
+        if (feed != null && feed.isComplete()) {
+            channel.etag = getHeader(response, "ETag");
+            channel.lastModified = getHeader(response, "Last-Modified");
+        } else {
+            channel.etag = null;
+            channel.lastModified = null;
+        }
+        return feed;
     }
 
     public List<ContactItemInterface> executeGetJSON(Department uni,
                                                      JSONHandler handler) throws IOException {
         LOGI(TAG, "get Json (dest = " + uni.dest + ")");
 
-        StreamUtils.disableConnectionReuseIfNecessary();
-
         String serverUrl = Config.Links.SERVER + "/lecturers.php?format=json&dest="
                 + uni.dest;
 
-        URL url = new URL(serverUrl);
-        HttpURLConnection urlConnection = (HttpURLConnection) url
-                .openConnection();
-        urlConnection.setRequestProperty("User-Agent", userAgent);
-        urlConnection.setRequestProperty("Content-Type", "application/json");
+        HttpGet request = newRequest(serverUrl, "application/json");
+        HttpResponse response = HttpStack.execute(request);
+        throwErrors(request, response);
 
-        urlConnection.connect();
-        throwErrors(urlConnection);
+        InputStream is = HttpStack.getContent(response);
+        try {
+            return handler.parse(new InputStreamReader(is,
+                    StreamUtils.DEFAULT_ENCODING));
+        } finally {
+            StreamUtils.closeQuietly(is);
+        }
+    }
 
-        InputStream is = urlConnection.getInputStream();
-        String response = StreamUtils.readAllText(is);
+    private HttpGet newRequest(String url, String contentType) {
+        HttpGet request = new HttpGet(url);
+        request.setHeader("User-Agent", userAgent);
+        request.setHeader("Content-Type", contentType);
+        request.setHeader("Accept-Encoding",
+                DecodingInputStream.ACCEPT_ENCODING);
+        return request;
+    }
 
-        LOGV(TAG, "HTTP response: " + response);
-        return handler.parse(response);
+    private static String getHeader(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
     }
 
-    private void throwErrors(HttpURLConnection urlConnection)
+    private void throwErrors(HttpGet request, HttpResponse response)
             throws IOException {
-        final int status = urlConnection.getResponseCode();
+        final int status = response.getStatusLine().getStatusCode();
         if (status < 200 || status >= 300) {
             String errorMessage = null;
             try {
-                String errorContent = StreamUtils.readAllText(urlConnection
-                        .getErrorStream());
+                String errorContent = StreamUtils.readAllText(HttpStack
+                        .getContent(response));
                 LOGV(TAG, "Error content: " + errorContent);
                 ErrorResponse errorResponse = new Gson().fromJson(errorContent,
                         ErrorResponse.class);
@@ -117,14 +160,16 @@ public class UnivrReader implements Serializable {
             }
 
             String exceptionMessage = "Error response " + status + " "
-                    + urlConnection.getResponseMessage()
+                    + response.getStatusLine().getReasonPhrase()
                     + (errorMessage == null ? "" : (": " + errorMessage))
-                    + " for " + urlConnection.getURL();
+                    + " for " + request.getURI();
 
             // TODO: the API should return 401, and we shouldn't have to parse
             // the message
             if (errorMessage != null)
                 throw new HandlerException(exceptionMessage);
+            // the body, already read, is not the expected content
+            throw new IOException(exceptionMessage);
         }
     }
 }
@@ -5,7 +5,6 @@ import com.cellasoft.univrapp.BuildConfig;
 import com.cellasoft.univrapp.model.Item;
 import com.cellasoft.univrapp.rss.RSSHandler.OnNewEntryCallback;
 import com.cellasoft.univrapp.utils.Lists;
-import com.cellasoft.univrapp.utils.StreamUtils;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -21,6 +20,8 @@ import java.util.List;
 public class RSSFeed {
 
     private static SAXParserFactory factory = SAXParserFactory.newInstance();
+    // RSSPullParser; false goes back to the SAX RSSHandler
+    private static volatile boolean pullParser = true;
 
     private int id;
     private String title;
@@ -28,13 +29,85 @@ public class RSSFeed {
     private String description;
     private Date updated;
     private List<Item> entries;
+    private int size;
+    private boolean notModified;
+    private boolean complete;
+    private boolean stopped;
+    private long wireBytes;
+    private long decodedBytes;
 
     public RSSFeed() {
         entries = Lists.newArrayList();
     }
 
+    /**
+     * @return an empty feed for a 304 response
+     */
+    public static RSSFeed notModified() {
+        RSSFeed feed = new RSSFeed();
+        feed.notModified = true;
+        return feed;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    /**
+     * @return true if the document was read to the end, or until the parse
+     * stopped on purpose; false after a read or parse error
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return true if the parse stopped before the end of the document, on
+     * a known item or on the maximum number of items
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the bytes of the response read from the network for the
+     * parse, before decoding
+     */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * @return the bytes of the response read by the parser, after decoding
+     */
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    public void setTransfer(long wireBytes, long decodedBytes) {
+        this.wireBytes = wireBytes;
+        this.decodedBytes = decodedBytes;
+    }
+
+    void finish(boolean stopped) {
+        this.complete = true;
+        this.stopped = stopped;
+    }
+
+    public static void setPullParser(boolean enabled) {
+        pullParser = enabled;
+    }
+
+    /**
+     * Parses the feed from the stream, which is left open: the caller
+     * closes it, or drops it if the parse stopped early.
+     */
     public static RSSFeed parse(InputStream is, int maxItems,
                                 OnNewEntryCallback callback) {
+        if (pullParser) {
+            return pullParse(is, maxItems, callback);
+        }
+
         RSSHandler handler = new RSSHandler(maxItems);
         handler.setCallback(callback);
 
@@ -48,14 +121,31 @@ public class RSSFeed {
             // perform the synchronous parse
             xmlReader.parse(new InputSource(is));
         } catch (Exception e) {
-            Log.e("ERROR", "Parser IO exception.");
-        } finally {
-            StreamUtils.closeQuietly(is);
+            if (!handler.isStopped()) {
+                Log.e("ERROR", "Parser IO exception.");
+            }
         }
 
         return handler.getFeed();
     }
 
+    private static RSSFeed pullParse(InputStream is, int maxItems,
+                                     OnNewEntryCallback callback) {
+        RSSPullParser parser = new RSSPullParser(maxItems);
+        parser.setCallback(callback);
+
+        try {
+            RSSFeed feed = parser.parse(is);
+            if (feed != null) {
+                feed.finish(parser.isStopped());
+            }
+            return feed;
+        } catch (Exception e) {
+            Log.e("ERROR", "Parser IO exception.");
+            return parser.getFeed();
+        }
+    }
+
     public int getId() {
         return id;
     }
@@ -110,5 +200,21 @@ public class RSSFeed {
 
     public void addItem(Item item) {
         this.entries.add(item);
+        size++;
+    }
+
+    /**
+     * Counts an item handed to the {@link OnNewEntryCallback} of the parse
+     * instead of being kept in the entries.
+     */
+    public void countItem() {
+        size++;
+    }
+
+    /**
+     * @return the number of items read, kept in the entries or not
+     */
+    public int size() {
+        return size;
     }
 }
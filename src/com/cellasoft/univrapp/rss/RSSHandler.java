@@ -30,6 +30,7 @@ public class RSSHandler extends DefaultHandler {
     private int maxItems = 20;
     private int currentState = 0;
     private RSSFeed feed;
+    private boolean stopped;
     private OnNewEntryCallback callback;
 
     public RSSHandler(int maxItems) {
@@ -48,6 +49,22 @@ public class RSSHandler extends DefaultHandler {
         return feed;
     }
 
+    /**
+     * @return true if the parse was stopped on purpose, on a known item or
+     * on the maximum number of items
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        super.endDocument();
+        if (feed != null) {
+            feed.finish(false);
+        }
+    }
+
     @Override
     public void startDocument() throws SAXException {
         super.startDocument();
@@ -126,11 +143,13 @@ public class RSSHandler extends DefaultHandler {
                     } catch (Throwable t) {
                         throw new SAXException(t.getMessage());
                     }
+                    feed.countItem();
+                } else {
+                    feed.addItem(currentItem);
                 }
-
-                feed.addItem(currentItem);
                 currentState = RSS_CHANNEL;
-                if (feed.getEntries().size() == maxItems) {
+                if (feed.size() == maxItems) {
+                    stop();
                     throw new SAXException("Reaching maximum items (" + maxItems
                             + "). Stop parsing.");
                 }
@@ -147,7 +166,9 @@ public class RSSHandler extends DefaultHandler {
             case LINK:
                 if (currentState == RSS_ITEM_LINK) {
                     currentItem.link = theFullText;
-                    if (currentItem.exist()) {
+                    if (callback != null ? callback.isKnown(theFullText)
+                            : currentItem.exist()) {
+                        stop();
                         throw new SAXException(
                                 "Trovato item gi� esistente. Stop parsing.");
                     }
@@ -193,6 +214,11 @@ public class RSSHandler extends DefaultHandler {
             builder.append(ch, start, length);
     }
 
+    private void stop() {
+        stopped = true;
+        feed.finish(true);
+    }
+
     private XML_TAGS getTag(String localName) {
         return XML_TAGS.valueOf(localName.toUpperCase(Locale.getDefault())
                 .trim());
@@ -206,6 +232,16 @@ public class RSSHandler extends DefaultHandler {
     }
 
     public interface OnNewEntryCallback {
+        /**
+         * Called with the link of every entry: a known link stops the
+         * parsing, the entries that follow are older.
+         */
+        boolean isKnown(String link);
+
+        /**
+         * Takes the entry: the entries given to the callback are not kept
+         * in the feed, only counted.
+         */
         void onNewEntry(Item item);
     }
 }
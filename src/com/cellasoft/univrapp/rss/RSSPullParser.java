@@ -0,0 +1,301 @@
+package com.cellasoft.univrapp.rss;
+
+import android.util.Xml;
+import com.cellasoft.univrapp.model.Item;
+import com.cellasoft.univrapp.rss.RSSHandler.OnNewEntryCallback;
+import com.cellasoft.univrapp.utils.DateUtils;
+import com.cellasoft.univrapp.utils.Html;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming RSS parser on {@link XmlPullParser}, the same feed as
+ * {@link RSSHandler} without its costs: tag names are compared by identity
+ * with interned constants instead of going through the XML_TAGS enum, the
+ * text is copied from the parser buffer and cleaned in one reusable buffer,
+ * unknown elements are skipped with their content, and the parse stops by
+ * returning, not by throwing.
+ */
+public class RSSPullParser {
+
+    private static final int TAG_UNKNOWN = 0;
+    private static final int TAG_CHANNEL = 1;
+    private static final int TAG_ITEM = 2;
+    private static final int TAG_TITLE = 3;
+    private static final int TAG_LINK = 4;
+    private static final int TAG_DESCRIPTION = 5;
+    private static final int TAG_GUID = 6;
+    private static final int TAG_PUBDATE = 7;
+    private static final int TAG_RSS = 8;
+
+    // literals, so interned
+    private static final String[] TAG_NAMES = {null, "channel", "item",
+            "title", "link", "description", "guid", "pubDate", "rss"};
+
+    private static final int STATE_CHANNEL = 0;
+    private static final int STATE_ITEM = 1;
+    // the states below collect the text of the element
+    private static final int STATE_TEXT = 2;
+
+    private final int maxItems;
+    private OnNewEntryCallback callback;
+
+    private RSSFeed feed;
+    private Item currentItem;
+    private int state;
+    private boolean stopped;
+    private int textTag;
+    private char[] text = new char[256];
+    private int textLength;
+    private final int[] textBounds = new int[2];
+    // the instances of the names as read by the parser, which pools
+    // them: a name already seen is matched by identity
+    private final String[] tagNames = TAG_NAMES.clone();
+    // the last name found unknown, not matched again
+    private String unknownName;
+
+    public RSSPullParser(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public void setCallback(OnNewEntryCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * @return true if the last parse stopped on a known item or on the
+     * maximum number of items
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return the feed read so far, also after a parse error
+     */
+    public RSSFeed getFeed() {
+        return feed;
+    }
+
+    /**
+     * @return the feed read until the end of the document, the maximum
+     * number of items or the first known item; null if the document
+     * has no channel
+     */
+    public RSSFeed parse(InputStream is) throws XmlPullParserException,
+            IOException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(is, null);
+
+        feed = null;
+        stopped = false;
+        currentItem = null;
+        state = STATE_CHANNEL;
+
+        for (int event = parser.next(); event != XmlPullParser.END_DOCUMENT;
+             event = parser.next()) {
+            switch (event) {
+                case XmlPullParser.START_TAG:
+                    if (!startTag(getTag(parser.getName()))) {
+                        skip(parser);
+                    }
+                    break;
+                case XmlPullParser.TEXT:
+                    if (state >= STATE_TEXT) {
+                        appendText(parser.getTextCharacters(textBounds),
+                                textBounds[0], textBounds[1]);
+                    }
+                    break;
+                case XmlPullParser.END_TAG:
+                    if (!endTag(getTag(parser.getName()))) {
+                        stopped = true;
+                        return feed;
+                    }
+                    break;
+            }
+        }
+        return feed;
+    }
+
+    /**
+     * @return false if the element and its content are to be skipped
+     */
+    private boolean startTag(int tag) {
+        switch (tag) {
+            case TAG_RSS:
+                return true;
+            case TAG_CHANNEL:
+                if (feed == null) {
+                    feed = new RSSFeed();
+                }
+                state = STATE_CHANNEL;
+                return true;
+            case TAG_ITEM:
+                if (feed == null || state != STATE_CHANNEL) {
+                    return false;
+                }
+                currentItem = new Item();
+                state = STATE_ITEM;
+                return true;
+            case TAG_TITLE:
+            case TAG_LINK:
+            case TAG_DESCRIPTION:
+                return startText(tag);
+            case TAG_GUID:
+            case TAG_PUBDATE:
+                return state == STATE_ITEM && startText(tag);
+            default:
+                return false;
+        }
+    }
+
+    private boolean startText(int tag) {
+        if (feed == null || state >= STATE_TEXT) {
+            return false;
+        }
+        textTag = tag;
+        textLength = 0;
+        state += STATE_TEXT;
+        return true;
+    }
+
+    /**
+     * @return false to stop parsing
+     */
+    private boolean endTag(int tag) {
+        if (state >= STATE_TEXT) {
+            if (tag != textTag) {
+                return true;
+            }
+            state -= STATE_TEXT;
+            return state == STATE_ITEM ? endItemText(tag) : endChannelText(tag);
+        }
+
+        if (tag == TAG_ITEM && state == STATE_ITEM) {
+            state = STATE_CHANNEL;
+            if (callback != null) {
+                callback.onNewEntry(currentItem);
+                feed.countItem();
+            } else {
+                feed.addItem(currentItem);
+            }
+            currentItem = null;
+            return feed.size() < maxItems;
+        }
+        return true;
+    }
+
+    private boolean endChannelText(int tag) {
+        switch (tag) {
+            case TAG_TITLE:
+                feed.setTitle(Html.decode(getText()));
+                break;
+            case TAG_LINK:
+                feed.setLink(getText());
+                break;
+            case TAG_DESCRIPTION:
+                feed.setDescription(getText());
+                break;
+        }
+        return true;
+    }
+
+    private boolean endItemText(int tag) {
+        switch (tag) {
+            case TAG_TITLE:
+                currentItem.title = Html.decode(getText());
+                break;
+            case TAG_LINK:
+                String link = getText();
+                currentItem.link = link;
+                // the entries that follow are older: stop here
+                return !(callback != null ? callback.isKnown(link)
+                        : currentItem.exist());
+            case TAG_DESCRIPTION:
+                currentItem.description = getText().replace(",", "<br/>");
+                break;
+            case TAG_GUID:
+                currentItem.guid = getText();
+                break;
+            case TAG_PUBDATE:
+                currentItem.pubDate = DateUtils.parseRfc822(getText());
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Appends the text dropping line breaks and tabs, as
+     * RSSHandler.cleanUpText does.
+     */
+    private void appendText(char[] chunk, int start, int length) {
+        if (chunk == null) {
+            return;
+        }
+        if (textLength + length > text.length) {
+            char[] larger = new char[Math.max(text.length * 2, textLength
+                    + length)];
+            System.arraycopy(text, 0, larger, 0, textLength);
+            text = larger;
+        }
+        for (int i = start, end = start + length; i < end; i++) {
+            char c = chunk[i];
+            if (c != '\r' && c != '\n' && c != '\t') {
+                text[textLength++] = c;
+            }
+        }
+    }
+
+    private String getText() {
+        int start = 0;
+        int end = textLength;
+        while (start < end && text[start] <= ' ') {
+            start++;
+        }
+        while (end > start && text[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(text, start, end - start);
+    }
+
+    private int getTag(String name) {
+        for (int i = TAG_CHANNEL; i < tagNames.length; i++) {
+            if (tagNames[i] == name) {
+                return i;
+            }
+        }
+        if (name == unknownName) {
+            return TAG_UNKNOWN;
+        }
+        // first time the parser gives this instance, or another case:
+        // RSSHandler matched the names in any case
+        for (int i = TAG_CHANNEL; i < TAG_NAMES.length; i++) {
+            if (TAG_NAMES[i].equalsIgnoreCase(name)) {
+                tagNames[i] = name;
+                return i;
+            }
+        }
+        unknownName = name;
+        return TAG_UNKNOWN;
+    }
+
+    private static void skip(XmlPullParser parser)
+            throws XmlPullParserException, IOException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    depth++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    depth--;
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    return;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.cellasoft.univrapp.utils;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Storage format of the item descriptions: the short ones are stored as
+ * text, the others as a BLOB of their raw-deflated UTF-8 bytes. The
+ * announcements of the portal repeat the same markup, so they shrink a lot.
+ */
+public final class BodyCodec {
+    /**
+     * Descriptions shorter than this many characters are stored as text.
+     */
+    public static final int COMPRESSION_THRESHOLD = 512;
+
+    private static final String CHARSET = "UTF-8";
+
+    private BodyCodec() {
+    }
+
+    public static boolean shouldCompress(String description) {
+        return description != null
+                && description.length() >= COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * @return the value to store for the description, a String or a byte[]
+     */
+    public static Object encode(String description) {
+        return shouldCompress(description) ? compress(description)
+                : description;
+    }
+
+    public static byte[] compress(String description) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(description.getBytes(CHARSET));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    description.length() / 3);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] data) {
+        // the extra byte is required by raw inflate to end the stream
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] input = new byte[data.length + 1];
+            System.arraycopy(data, 0, input, 0, data.length);
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    data.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toString(CHARSET);
+        } catch (DataFormatException e) {
+            Log.e("ERROR", "Corrupted description: " + e.getMessage());
+            return null;
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads a description stored in either format.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    public static String read(Cursor cursor, int column) {
+        if (UIUtils.hasHoneycomb()) {
+            return cursor.getType(column) == Cursor.FIELD_TYPE_BLOB
+                    ? decompress(cursor.getBlob(column))
+                    : cursor.getString(column);
+        }
+        try {
+            return cursor.getString(column);
+        } catch (SQLiteException e) {
+            // before Honeycomb a BLOB cannot be read as a string
+            return decompress(cursor.getBlob(column));
+        }
+    }
+}
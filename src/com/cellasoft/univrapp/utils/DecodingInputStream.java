@@ -0,0 +1,174 @@
+package com.cellasoft.univrapp.utils;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static com.cellasoft.univrapp.utils.LogUtils.LOGD;
+import static com.cellasoft.univrapp.utils.LogUtils.makeLogTag;
+
+/**
+ * Body of an HTTP response decoded from its Content-Encoding while it is
+ * read, so the parsers consume it as it arrives. It counts the bytes read
+ * from the network and the decoded bytes of its request, and adds them to
+ * the totals of the process when it is closed.
+ */
+public class DecodingInputStream extends FilterInputStream {
+    private static final String TAG = makeLogTag(DecodingInputStream.class);
+
+    /**
+     * Value of the Accept-Encoding header of the requests.
+     */
+    public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final AtomicLong totalWireBytes = new AtomicLong();
+    private static final AtomicLong totalDecodedBytes = new AtomicLong();
+
+    private final CountingInputStream wire;
+    private final String encoding;
+    private long decodedBytes;
+    private boolean closed;
+
+    private DecodingInputStream(InputStream decoded, CountingInputStream wire,
+                                String encoding) {
+        super(decoded);
+        this.wire = wire;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @param contentEncoding the Content-Encoding of the response, null if
+     *                        not encoded
+     */
+    public static DecodingInputStream open(InputStream body,
+                                           String contentEncoding) throws IOException {
+        CountingInputStream wire = new CountingInputStream(body);
+        String encoding = contentEncoding == null ? "identity"
+                : contentEncoding.trim().toLowerCase(Locale.US);
+        InputStream decoded;
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            decoded = new GZIPInputStream(wire, StreamUtils.BUFFER_SIZE);
+        } else if ("deflate".equals(encoding)) {
+            decoded = inflate(new BufferedInputStream(wire,
+                    StreamUtils.BUFFER_SIZE));
+        } else {
+            decoded = wire;
+        }
+        return new DecodingInputStream(decoded, wire, encoding);
+    }
+
+    /**
+     * "deflate" should be a zlib stream, but some servers send raw deflate:
+     * the zlib header is recognized from its first two bytes.
+     */
+    private static InputStream inflate(BufferedInputStream in)
+            throws IOException {
+        in.mark(2);
+        int cmf = in.read();
+        int flg = in.read();
+        in.reset();
+        boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0f) == 8
+                && ((cmf << 8) | flg) % 31 == 0;
+        return new InflaterInputStream(in, new Inflater(!zlib),
+                StreamUtils.BUFFER_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            decodedBytes++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        int read = super.read(buffer, offset, count);
+        if (read > 0) {
+            decodedBytes += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = super.skip(count);
+        decodedBytes += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            totalWireBytes.addAndGet(wire.count);
+            totalDecodedBytes.addAndGet(decodedBytes);
+            LOGD(TAG, encoding + ": " + wire.count + " bytes received, "
+                    + decodedBytes + " decoded");
+        }
+        super.close();
+    }
+
+    /**
+     * @return the bytes of this response read from the network
+     */
+    public long getWireBytes() {
+        return wire.count;
+    }
+
+    /**
+     * @return the bytes of this response after decoding
+     */
+    public long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    public static long getTotalWireBytes() {
+        return totalWireBytes.get();
+    }
+
+    public static long getTotalDecodedBytes() {
+        return totalDecodedBytes.get();
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count)
+                throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                this.count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(count);
+            this.count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -46,9 +46,11 @@ public class Html {
     }
 
     public static List<String> getAttachment(String html) {
-        List<String> attachment = Lists.newArrayList();
-        Document doc = Jsoup.parse(html);
+        return getAttachment(Jsoup.parse(html));
+    }
 
+    public static List<String> getAttachment(Document doc) {
+        List<String> attachment = Lists.newArrayList();
         Elements files = doc.select("dl.docTab > dd > ul.formati > li > a");
 
         for (Element file : files) {
@@ -84,8 +86,10 @@ public class Html {
     public static String parserPage(String html) {
         String body = getBodyContent(html);
 
-        Document doc = Jsoup.parse(body);
+        return parserPage(Jsoup.parse(body));
+    }
 
+    public static String parserPage(Document doc) {
         try {
             Element article = doc.select("div.sezione").first();
 
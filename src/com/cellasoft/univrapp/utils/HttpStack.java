@@ -0,0 +1,268 @@
+package com.cellasoft.univrapp.utils;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.LayeredSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The HTTP client shared by all the network calls of the app. It keeps the
+ * connections alive in a pool, a few per host, so the feeds of a department
+ * reuse the same connections, and it caches the resolved host names.
+ * <p/>
+ * Every response must be consumed or its content closed, which gives the
+ * connection back to the pool.
+ * <p/>
+ * Apache HttpClient rather than HttpURLConnection: on Froyo, the oldest
+ * supported version, closing a readable stream of HttpURLConnection can
+ * poison its keep-alive pool, and the pool cannot be sized per host nor
+ * its idle connections closed; here a request can also be aborted.
+ */
+public final class HttpStack {
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    private static final int READ_TIMEOUT = 30 * 1000;
+    // wait for a free pooled connection, then fail instead of blocking
+    private static final long POOL_TIMEOUT = 20 * 1000;
+    // left in a body abandoned before its end: read it to keep the
+    // connection, abort the request beyond this
+    private static final long MAX_DRAIN_BYTES = 16 * 1024;
+    private static final int MAX_CONNECTIONS = 12;
+    private static final int MAX_CONNECTIONS_PER_HOST = 4;
+    private static final long IDLE_TIMEOUT = 30 * 1000;
+    private static final long DNS_TTL = 10 * 60 * 1000;
+
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong connections = new AtomicLong();
+    private static final Map<String, CachedAddress> dnsCache = new HashMap<String, CachedAddress>();
+    private static HttpClient client;
+
+    private HttpStack() {
+    }
+
+    public static synchronized HttpClient getClient() {
+        if (client == null) {
+            HttpParams params = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(params, CONNECT_TIMEOUT);
+            HttpConnectionParams.setSoTimeout(params, READ_TIMEOUT);
+            HttpConnectionParams.setSocketBufferSize(params,
+                    StreamUtils.BUFFER_SIZE);
+            ConnManagerParams.setTimeout(params, POOL_TIMEOUT);
+            ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS);
+            ConnManagerParams.setMaxConnectionsPerRoute(params,
+                    new ConnPerRouteBean(MAX_CONNECTIONS_PER_HOST));
+
+            SchemeRegistry registry = new SchemeRegistry();
+            registry.register(new Scheme("http", new PlainSocketFactory(), 80));
+            registry.register(new Scheme("https", new SslSocketFactory(), 443));
+            client = new DefaultHttpClient(new ThreadSafeClientConnManager(
+                    params, registry), params);
+        }
+        return client;
+    }
+
+    public static HttpResponse execute(HttpUriRequest request)
+            throws IOException {
+        requests.incrementAndGet();
+        return getClient().execute(request);
+    }
+
+    /**
+     * @return the body of the response, decoded from its Content-Encoding
+     * while it is read
+     */
+    public static DecodingInputStream getContent(HttpResponse response)
+            throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return DecodingInputStream.open(new ByteArrayInputStream(
+                    new byte[0]), null);
+        }
+        Header encoding = entity.getContentEncoding();
+        return DecodingInputStream.open(entity.getContent(),
+                encoding == null ? null : encoding.getValue());
+    }
+
+    /**
+     * Reads what is left of the response, so its connection can be reused.
+     */
+    public static void consume(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity != null) {
+            try {
+                entity.consumeContent();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Releases a response whose content was read by the caller. If the
+     * content was not read to its end and much of it is left, or its length
+     * is unknown, the request is aborted and its connection closed, rather
+     * than downloading the rest only to reuse the connection.
+     */
+    public static void release(HttpUriRequest request, HttpResponse response,
+                               DecodingInputStream content, boolean readToEnd) {
+        if (!readToEnd) {
+            HttpEntity entity = response.getEntity();
+            long length = entity == null ? 0 : entity.getContentLength();
+            if (length < 0 || length - content.getWireBytes() > MAX_DRAIN_BYTES) {
+                request.abort();
+            }
+        }
+        StreamUtils.closeQuietly(content);
+    }
+
+    /**
+     * Closes the pooled connections unused for a while, at the end of a
+     * synchronization.
+     */
+    public static synchronized void closeIdleConnections() {
+        if (client != null) {
+            client.getConnectionManager().closeIdleConnections(IDLE_TIMEOUT,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static long getRequests() {
+        return requests.get();
+    }
+
+    public static long getConnectionsOpened() {
+        return connections.get();
+    }
+
+    /**
+     * @return the requests sent on a connection opened by a previous request
+     */
+    public static long getConnectionsReused() {
+        return Math.max(0, requests.get() - connections.get());
+    }
+
+    private static InetAddress resolve(String host)
+            throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        synchronized (dnsCache) {
+            CachedAddress cached = dnsCache.get(host);
+            if (cached != null && cached.expires > now) {
+                return cached.address;
+            }
+        }
+        InetAddress address = InetAddress.getByName(host);
+        synchronized (dnsCache) {
+            dnsCache.put(host, new CachedAddress(address, now + DNS_TTL));
+        }
+        return address;
+    }
+
+    private static class CachedAddress {
+        final InetAddress address;
+        final long expires;
+
+        CachedAddress(InetAddress address, long expires) {
+            this.address = address;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Plain sockets connected to the cached address of the host.
+     */
+    private static class PlainSocketFactory implements SocketFactory {
+
+        @Override
+        public Socket createSocket() {
+            return new Socket();
+        }
+
+        @Override
+        public Socket connectSocket(Socket sock, String host, int port,
+                                    InetAddress localAddress, int localPort, HttpParams params)
+                throws IOException {
+            if (sock == null) {
+                sock = createSocket();
+            }
+            if (localAddress != null || localPort > 0) {
+                sock.bind(new InetSocketAddress(localAddress,
+                        localPort < 0 ? 0 : localPort));
+            }
+            try {
+                sock.connect(new InetSocketAddress(resolve(host), port),
+                        HttpConnectionParams.getConnectionTimeout(params));
+            } catch (IOException e) {
+                // the host may have moved
+                synchronized (dnsCache) {
+                    dnsCache.remove(host);
+                }
+                throw e;
+            }
+            sock.setSoTimeout(HttpConnectionParams.getSoTimeout(params));
+            connections.incrementAndGet();
+            return sock;
+        }
+
+        @Override
+        public boolean isSecure(Socket sock) {
+            return false;
+        }
+    }
+
+    /**
+     * The default SSL sockets, only counted.
+     */
+    private static class SslSocketFactory implements LayeredSocketFactory {
+        private final SSLSocketFactory delegate = SSLSocketFactory
+                .getSocketFactory();
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return delegate.createSocket();
+        }
+
+        @Override
+        public Socket connectSocket(Socket sock, String host, int port,
+                                    InetAddress localAddress, int localPort, HttpParams params)
+                throws IOException {
+            Socket socket = delegate.connectSocket(sock, host, port,
+                    localAddress, localPort, params);
+            connections.incrementAndGet();
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port,
+                                   boolean autoClose) throws IOException {
+            return delegate.createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public boolean isSecure(Socket sock) {
+            return delegate.isSecure(sock);
+        }
+    }
+}
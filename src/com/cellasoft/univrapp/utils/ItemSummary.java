@@ -0,0 +1,87 @@
+package com.cellasoft.univrapp.utils;
+
+import android.graphics.Typeface;
+import android.support.v4.util.LruCache;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+
+/**
+ * The summary shown by the item lists. The HTML description is rendered
+ * once, when the item is saved, into a short plain text stored in the
+ * SUMMARY column; binding a row only adds the bold span to it, and the
+ * styled text is kept in memory by item id.
+ */
+public class ItemSummary {
+    public static final int MAX_LENGTH = 300;
+    private static final String PUBLISHED_BY = "Pubblicato da:";
+    // total number of characters kept in memory
+    private static final int CACHE_SIZE = 64 * 1024;
+
+    private static final LruCache<Integer, CharSequence> cache = new LruCache<Integer, CharSequence>(
+            CACHE_SIZE) {
+        @Override
+        protected int sizeOf(Integer key, CharSequence value) {
+            return value.length();
+        }
+    };
+
+    /**
+     * Renders the HTML description of an item into its summary. Does the
+     * HTML parsing, so it should not run on the UI thread.
+     */
+    public static String render(String description) {
+        if (description == null) {
+            return null;
+        }
+        String text = android.text.Html.fromHtml(description).toString()
+                .replace("\uFFFC", "")
+                .replaceAll("[ \\t\\x0B\\f\\r\\u00A0]+", " ")
+                .replaceAll(" ?\\n[\\n ]*", "\n").trim();
+        if (text.length() > MAX_LENGTH) {
+            text = text.substring(0, MAX_LENGTH - 1).trim() + "\u2026";
+        }
+        return text;
+    }
+
+    /**
+     * @return the styled summary of the item, from the cache when possible
+     */
+    public static CharSequence get(int itemId, String summary) {
+        if (itemId <= 0) {
+            return style(summary);
+        }
+        CharSequence styled = cache.get(itemId);
+        if (styled == null) {
+            styled = style(summary);
+            cache.put(itemId, styled);
+        }
+        return styled;
+    }
+
+    public static void evict(int itemId) {
+        cache.remove(itemId);
+    }
+
+    public static void clear() {
+        cache.evictAll();
+    }
+
+    private static CharSequence style(String summary) {
+        if (summary == null) {
+            return "";
+        }
+        int start = summary.indexOf(PUBLISHED_BY);
+        if (start < 0) {
+            return summary;
+        }
+        SpannableString styled = new SpannableString(summary);
+        while (start >= 0) {
+            int end = start + PUBLISHED_BY.length();
+            styled.setSpan(new StyleSpan(Typeface.BOLD), start, end,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            start = summary.indexOf(PUBLISHED_BY, end);
+        }
+        return styled;
+    }
+}
@@ -54,4 +54,18 @@ public abstract class JSONHandler {
 
     public abstract List<ContactItemInterface> parse(String json)
             throws IOException;
+
+    /**
+     * Parses the JSON read from a stream; the handlers that can parse it
+     * while it is read override this method.
+     */
+    public List<ContactItemInterface> parse(Reader reader) throws IOException {
+        Writer writer = new StringWriter();
+        char[] buffer = new char[1024];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            writer.write(buffer, 0, n);
+        }
+        return parse(writer.toString());
+    }
 }
\ No newline at end of file
@@ -19,8 +19,10 @@ package com.cellasoft.univrapp.utils;
 import com.cellasoft.univrapp.model.Lecturer;
 import com.cellasoft.univrapp.widget.ContactItemInterface;
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -31,10 +33,20 @@ public class LecturersHandler extends JSONHandler {
 
     public List<ContactItemInterface> parse(String jsonString)
             throws IOException {
-        List<ContactItemInterface> result = Lists.newArrayList();
+        return toContacts(getLecturerList(jsonString));
+    }
+
+    @Override
+    public List<ContactItemInterface> parse(Reader reader) throws IOException {
+        try {
+            return toContacts(new Gson().fromJson(reader, LecturerList.class));
+        } catch (JsonIOException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
 
-        LecturerList list = null;
-        list = getLecturerList(jsonString);
+    private List<ContactItemInterface> toContacts(LecturerList list) {
+        List<ContactItemInterface> result = Lists.newArrayList();
 
         if (list != null) {
 
@@ -2,9 +2,7 @@ package com.cellasoft.univrapp.utils;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
 
 import java.io.*;
 import java.util.List;
@@ -36,14 +34,8 @@ public class StreamUtils {
      * @return
      */
     public static String readFromUrl(String url, String encoding) {
-        disableConnectionReuseIfNecessary();
-        HttpClient client = new DefaultHttpClient();
-        HttpGet get = new HttpGet(url);
         try {
-            HttpResponse response = client.execute(get);
-            InputStream is = response.getEntity().getContent();
-            String result = readAllText(is, encoding);
-            return result;
+            return readAllText(openUrl(url), encoding);
         } catch (ClientProtocolException e) {
             e.printStackTrace();
         } catch (IOException e) {
@@ -52,6 +44,26 @@ public class StreamUtils {
         return "";
     }
 
+    /**
+     * Opens the content of the URL, decoded while it is read. Closing the
+     * stream gives the connection back to the pool: always close it from a
+     * finally block.
+     *
+     * @throws IOException if the server answers with an error
+     */
+    public static InputStream openUrl(String url) throws IOException {
+        HttpGet get = new HttpGet(url);
+        get.addHeader("Accept-Encoding", DecodingInputStream.ACCEPT_ENCODING);
+        HttpResponse response = HttpStack.execute(get);
+        int status = response.getStatusLine().getStatusCode();
+        if (status < 200 || status >= 300) {
+            HttpStack.consume(response);
+            throw new IOException("Unexpected response code " + status
+                    + " for " + url);
+        }
+        return HttpStack.getContent(response);
+    }
+
     public static String readAllText(InputStream inputStream) {
         return readAllText(inputStream, DEFAULT_ENCODING);
     }